@@ -0,0 +1,168 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Load generator for POST /api/appointments/book, run with the single-file launcher:
+//   java bench/BookBenchmark.java <baseUrl> <label> [requests] [concurrency] [doctors] [patients]
+// Every request books a distinct doctor/date/slot, so failures are real errors, not conflicts.
+public class BookBenchmark {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern USER_ID = Pattern.compile("\"userId\":(\\d+)");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static final int SLOTS_PER_DAY = 18;
+    private static final LocalTime DAY_START = LocalTime.of(9, 0);
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        String label = args.length > 1 ? args[1] : "default";
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+        int doctors = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int patients = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.min(concurrency, 64)))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String run = Long.toString(System.currentTimeMillis(), 36);
+
+        System.out.println("[" + label + "] registering " + doctors + " doctors and " + patients + " patients");
+        long[] doctorIds = new long[doctors];
+        for (int i = 0; i < doctors; i++) {
+            String email = "bench-d" + i + "-" + run + "@example.com";
+            post(client, base + "/auth/register/doctor", null, "{\"name\":\"Bench Doctor " + i + "\",\"email\":\"" + email
+                    + "\",\"password\":\"benchpass\",\"phone\":\"0\",\"specialization\":\"Cardiology\",\"qualification\":\"MBBS\","
+                    + "\"experience\":\"5\",\"consultationFee\":\"500\",\"hospitalName\":\"Bench\"}");
+            long userId = Long.parseLong(find(USER_ID, login(client, base, email)));
+            doctorIds[i] = Long.parseLong(find(ID, get(client, base + "/doctors/user/" + userId)));
+        }
+        long[] patientIds = new long[patients];
+        String[] tokens = new String[patients];
+        for (int i = 0; i < patients; i++) {
+            String email = "bench-p" + i + "-" + run + "@example.com";
+            post(client, base + "/auth/register/patient", null, "{\"name\":\"Bench Patient " + i + "\",\"email\":\"" + email
+                    + "\",\"password\":\"benchpass\",\"phone\":\"0\"}");
+            String body = login(client, base, email);
+            patientIds[i] = Long.parseLong(find(USER_ID, body));
+            tokens[i] = find(TOKEN, body);
+        }
+
+        // Warm up the JIT, caches and connection pool on slots far in the future
+        LocalDate warmupStart = LocalDate.now().plusYears(1);
+        runLoad(client, base, Math.min(requests / 5, 1000), concurrency, doctorIds, patientIds, tokens, warmupStart);
+
+        System.out.println("[" + label + "] " + requests + " bookings at concurrency " + concurrency);
+        Result result = runLoad(client, base, requests, concurrency, doctorIds, patientIds, tokens, LocalDate.now().plusDays(1));
+        result.print(label);
+        System.exit(0);
+    }
+
+    private static Result runLoad(HttpClient client, String base, int requests, int concurrency, long[] doctorIds,
+                                  long[] patientIds, String[] tokens, LocalDate firstDate) throws InterruptedException {
+        long[] latencies = new long[requests];
+        Map<Integer, AtomicInteger> statuses = new ConcurrentSkipListMap<>();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    int doctor = i % doctorIds.length;
+                    int slot = (i / doctorIds.length) % SLOTS_PER_DAY;
+                    int day = i / doctorIds.length / SLOTS_PER_DAY;
+                    int patient = i % patientIds.length;
+                    String body = "{\"patientId\":" + patientIds[patient] + ",\"doctorId\":" + doctorIds[doctor]
+                            + ",\"appointmentDate\":\"" + firstDate.plusDays(day) + "\",\"appointmentTime\":\""
+                            + DAY_START.plusMinutes(30L * slot) + "\",\"reason\":\"benchmark\"}";
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = send(client, base + "/appointments/book", tokens[patient], body).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    latencies[i] = System.nanoTime() - t0;
+                    statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        return new Result(latencies, statuses, System.nanoTime() - start);
+    }
+
+    private record Result(long[] latencies, Map<Integer, AtomicInteger> statuses, long elapsedNanos) {
+
+        void print(String label) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int errors = statuses.entrySet().stream()
+                    .filter(e -> e.getKey() != 200)
+                    .mapToInt(e -> e.getValue().get())
+                    .sum();
+            System.out.printf("[%s] throughput %.1f req/s, errors %d/%d, statuses %s%n", label,
+                    sorted.length / (elapsedNanos / 1e9), errors, sorted.length, statuses);
+            System.out.printf("[%s] latency ms p50 %.1f  p99 %.1f  p999 %.1f  max %.1f%n", label,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+
+    private static String login(HttpClient client, String base, String email) throws Exception {
+        return post(client, base + "/auth/login", null, "{\"email\":\"" + email + "\",\"password\":\"benchpass\"}");
+    }
+
+    private static String post(HttpClient client, String url, String token, String json) throws Exception {
+        HttpResponse<String> response = send(client, url, token, json);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String get(HttpClient client, String url) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static HttpResponse<String> send(HttpClient client, String url, String token, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String find(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return m.group(1);
+    }
+}
@@ -0,0 +1,335 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Mixed-traffic load generator, run with the single-file launcher:
+//   java bench/LoadTest.java <baseUrl> <label> [seconds] [concurrency] [doctors] [patients] [mix]
+// mix is a comma-separated list of operation=weight, default
+//   register=2,login=8,search=20,book=20,confirm=10,list=40
+// Closed loop: every worker sends its next request as soon as the previous one returns.
+// Bookings each take a distinct doctor/date/slot, so a failed booking is a real error.
+public class LoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern USER_ID = Pattern.compile("\"userId\":(\\d+)");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern APPOINTMENT_ID = Pattern.compile("\"appointmentId\":(\\d+)");
+
+    private static final String DEFAULT_MIX = "register=2,login=8,search=20,book=20,confirm=10,list=40";
+    private static final String[] SEARCH_TERMS = {"card", "cardiology", "derm", "neuro", "bench", "pediatr"};
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "Dermatology", "Neurology", "Pediatrics"};
+
+    private static final int SLOTS_PER_DAY = 18;
+    private static final LocalTime DAY_START = LocalTime.of(9, 0);
+    private static final int BOOKABLE_DAYS = 60;
+
+    enum Op { REGISTER, LOGIN, SEARCH, BOOK, CONFIRM, LIST }
+
+    record Account(String email, long userId, String token) {
+    }
+
+    record Doctor(long doctorId, Account account) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        String label = args.length > 1 ? args[1] : "default";
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        int doctorCount = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int patientCount = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+        Map<Op, Integer> mix = parseMix(args.length > 6 ? args[6] : DEFAULT_MIX);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.min(concurrency, 64)))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        LoadTest test = new LoadTest(client, base, Long.toString(System.currentTimeMillis(), 36));
+
+        System.out.println("[" + label + "] registering " + doctorCount + " doctors and " + patientCount + " patients");
+        for (int i = 0; i < doctorCount; i++) {
+            test.doctors.add(test.registerDoctor(i));
+        }
+        for (int i = 0; i < patientCount; i++) {
+            test.patients.add(test.registerPatient());
+        }
+        long capacity = (long) doctorCount * SLOTS_PER_DAY * BOOKABLE_DAYS;
+
+        int warmup = Math.min(10, Math.max(1, seconds / 5));
+        System.out.println("[" + label + "] warming up for " + warmup + "s");
+        test.run(mix, warmup, concurrency);
+
+        System.out.println("[" + label + "] " + seconds + "s at concurrency " + concurrency + ", mix " + mix);
+        Map<Op, Stats> results = test.run(mix, seconds, concurrency);
+        print(label, results, seconds);
+        if (test.nextSlot.get() > capacity) {
+            System.out.println("[" + label + "] WARNING: " + test.nextSlot.get() + " bookings exceeded the " + capacity
+                    + " free slots; later bookings collided. Add doctors or lower the book weight.");
+        }
+        System.exit(0);
+    }
+
+    private final HttpClient client;
+    private final String base;
+    private final String run;
+    private final List<Doctor> doctors = new CopyOnWriteArrayList<>();
+    private final List<Account> patients = new CopyOnWriteArrayList<>();
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicLong nextSlot = new AtomicLong();
+    // Booked appointments waiting for their doctor to confirm them: {appointmentId, doctor index}
+    private final Queue<long[]> pending = new ConcurrentLinkedQueue<>();
+
+    private LoadTest(HttpClient client, String base, String run) {
+        this.client = client;
+        this.base = base;
+        this.run = run;
+    }
+
+    private Map<Op, Stats> run(Map<Op, Integer> mix, int seconds, int concurrency) throws InterruptedException {
+        Op[] wheel = wheel(mix);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Map<Op, Stats>> perWorker = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            Map<Op, Stats> stats = new EnumMap<>(Op.class);
+            perWorker.add(stats);
+            workers.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Op op = wheel[random.nextInt(wheel.length)];
+                    if (op == Op.CONFIRM && pending.isEmpty()) {
+                        op = Op.BOOK;
+                    }
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = execute(op, random);
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    stats.computeIfAbsent(op, o -> new Stats()).add(System.nanoTime() - t0, status);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+
+        Map<Op, Stats> merged = new EnumMap<>(Op.class);
+        for (Map<Op, Stats> stats : perWorker) {
+            stats.forEach((op, s) -> merged.computeIfAbsent(op, o -> new Stats()).merge(s));
+        }
+        return merged;
+    }
+
+    private int execute(Op op, ThreadLocalRandom random) throws Exception {
+        switch (op) {
+            case REGISTER -> {
+                int n = registered.incrementAndGet();
+                String email = "load-p" + n + "-" + run + "@example.com";
+                return send(post("/auth/register/patient", null, "{\"name\":\"Load Patient " + n + "\",\"email\":\"" + email
+                        + "\",\"password\":\"loadpass\",\"phone\":\"0\"}")).statusCode();
+            }
+            case LOGIN -> {
+                Account account = patients.get(random.nextInt(patients.size()));
+                return send(post("/auth/login", null, "{\"email\":\"" + account.email() + "\",\"password\":\"loadpass\"}"))
+                        .statusCode();
+            }
+            case SEARCH -> {
+                Account account = patients.get(random.nextInt(patients.size()));
+                String term = SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)];
+                return send(get("/doctors/search?q=" + term + "&limit=20", account.token())).statusCode();
+            }
+            case BOOK -> {
+                Account account = patients.get(random.nextInt(patients.size()));
+                long i = nextSlot.getAndIncrement();
+                int doctor = (int) (i % doctors.size());
+                long slot = (i / doctors.size()) % SLOTS_PER_DAY;
+                long day = (i / doctors.size() / SLOTS_PER_DAY) % BOOKABLE_DAYS;
+                String body = "{\"patientId\":" + account.userId() + ",\"doctorId\":" + doctors.get(doctor).doctorId()
+                        + ",\"appointmentDate\":\"" + LocalDate.now().plusDays(1 + day) + "\",\"appointmentTime\":\""
+                        + DAY_START.plusMinutes(30L * slot) + "\",\"reason\":\"load test\"}";
+                HttpResponse<String> response = send(post("/appointments/book", account.token(), body));
+                if (response.statusCode() == 200) {
+                    pending.add(new long[] {Long.parseLong(find(APPOINTMENT_ID, response.body())), doctor});
+                }
+                return response.statusCode();
+            }
+            case CONFIRM -> {
+                long[] appointment = pending.poll();
+                if (appointment == null) {
+                    return execute(Op.BOOK, random);
+                }
+                Doctor doctor = doctors.get((int) appointment[1]);
+                HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/appointments/" + appointment[0] + "/confirm"))
+                        .timeout(Duration.ofSeconds(60))
+                        .header("Authorization", "Bearer " + doctor.account().token())
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+                return send(request).statusCode();
+            }
+            default -> {
+                // Two thirds of list traffic is patients checking their bookings, the rest doctor dashboards
+                if (random.nextInt(3) < 2) {
+                    Account account = patients.get(random.nextInt(patients.size()));
+                    return send(get("/appointments/patient/" + account.userId(), account.token())).statusCode();
+                }
+                Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+                return send(get("/appointments/doctor/user/" + doctor.account().userId(), doctor.account().token()))
+                        .statusCode();
+            }
+        }
+    }
+
+    private Doctor registerDoctor(int i) throws Exception {
+        String email = "load-d" + i + "-" + run + "@example.com";
+        expectOk(post("/auth/register/doctor", null, "{\"name\":\"Load Doctor " + i + "\",\"email\":\"" + email
+                + "\",\"password\":\"loadpass\",\"phone\":\"0\",\"specialization\":\"" + SPECIALIZATIONS[i % SPECIALIZATIONS.length]
+                + "\",\"qualification\":\"MBBS\",\"experience\":\"" + (3 + i % 20) + "\",\"consultationFee\":\"" + (300 + 50 * (i % 10))
+                + "\",\"hospitalName\":\"Bench\"}"));
+        Account account = login(email);
+        long doctorId = Long.parseLong(find(ID, expectOk(get("/doctors/user/" + account.userId(), account.token()))));
+        return new Doctor(doctorId, account);
+    }
+
+    private Account registerPatient() throws Exception {
+        int n = registered.incrementAndGet();
+        String email = "load-p" + n + "-" + run + "@example.com";
+        expectOk(post("/auth/register/patient", null, "{\"name\":\"Load Patient " + n + "\",\"email\":\"" + email
+                + "\",\"password\":\"loadpass\",\"phone\":\"0\"}"));
+        return login(email);
+    }
+
+    private Account login(String email) throws Exception {
+        String body = expectOk(post("/auth/login", null, "{\"email\":\"" + email + "\",\"password\":\"loadpass\"}"));
+        return new Account(email, Long.parseLong(find(USER_ID, body)), find(TOKEN, body));
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(60))
+                .GET();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String expectOk(HttpRequest request) throws Exception {
+        HttpResponse<String> response = send(request);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String find(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        if (!m.find()) {
+            throw new IllegalStateException("Unexpected response: " + body);
+        }
+        return m.group(1);
+    }
+
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                mix.put(Op.valueOf(kv[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix: " + spec);
+        }
+        return mix;
+    }
+
+    private static Op[] wheel(Map<Op, Integer> mix) {
+        List<Op> wheel = new ArrayList<>();
+        mix.forEach((op, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(op);
+            }
+        });
+        return wheel.toArray(new Op[0]);
+    }
+
+    private static void print(String label, Map<Op, Stats> results, int seconds) {
+        Stats total = new Stats();
+        results.values().forEach(total::merge);
+        System.out.printf("[%s] %-8s %9s %8s %8s %8s %8s %8s %8s  %s%n", label, "op", "requests", "req/s", "errors",
+                "p50 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+        results.forEach((op, stats) -> stats.print(label, op.name().toLowerCase(), seconds));
+        total.print(label, "total", seconds);
+    }
+
+    private static final class Stats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        void add(long nanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        void merge(Stats other) {
+            for (int i = 0; i < other.count; i++) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = other.latencies[i];
+            }
+            other.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+        }
+
+        void print(String label, String name, int seconds) {
+            if (count == 0) {
+                return;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int errors = statuses.entrySet().stream()
+                    .filter(e -> e.getKey() != 200)
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+            System.out.printf("[%s] %-8s %9d %8.1f %7.2f%% %8.1f %8.1f %8.1f %8.1f  %s%n", label, name, count,
+                    count / (double) seconds, 100.0 * errors / count, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[count - 1] / 1e6, statuses);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+}
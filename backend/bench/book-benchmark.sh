@@ -0,0 +1,51 @@
+#!/bin/bash
+# Compares /api/appointments/book on platform threads vs virtual threads.
+#
+#   DATABASE_URL=jdbc:postgresql://localhost:5432/medibook_bench DB_USERNAME=... DB_PASSWORD=... \
+#   JWT_SECRET=... bench/book-benchmark.sh [requests] [concurrency]
+#
+# Needs a Java 21+ JVM on PATH (or JAVA_HOME) for the virtual run. The schema is
+# recreated for each mode (DDL_AUTO=create), so point it at a throwaway database.
+#
+# Both modes run with the same HikariCP settings (those of application-virtual.properties
+# by default), so the comparison measures the threading model and not the pool. The
+# virtual run's in-flight cap (200) matches Tomcat's default of 200 platform worker threads.
+# Extra application arguments for both runs go in APP_ARGS, e.g. another pool size:
+#   APP_ARGS="--spring.datasource.hikari.maximum-pool-size=40 --spring.datasource.hikari.minimum-idle=40" bench/book-benchmark.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+REQUESTS=${1:-5000}
+CONCURRENCY=${2:-400}
+PORT=${PORT:-18080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+BASE="http://localhost:$PORT/api"
+POOL_ARGS="--spring.datasource.hikari.maximum-pool-size=20 --spring.datasource.hikari.minimum-idle=20 --spring.datasource.hikari.connection-timeout=3000"
+
+mvn -B -q -DskipTests package
+JAR=$(ls target/*.jar | grep -v original | head -1)
+
+run_mode() {
+    local label=$1 profiles=$2
+    echo "=== $label (profiles: $profiles)"
+    DDL_AUTO=create SPRING_PROFILES_ACTIVE="$profiles" PORT=$PORT \
+        JWT_EXPIRATION=${JWT_EXPIRATION:-86400000} CORS_ALLOWED_ORIGINS=${CORS_ALLOWED_ORIGINS:-*} \
+        "$JAVA" -Xms1g -Xmx1g -jar "$JAR" --logging.level.root=WARN --logging.level.org.springframework.web=WARN --ratelimit.enabled=false --payments.gateway=fake \
+        $POOL_ARGS ${APP_ARGS:-} > "target/bench-$label.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null" EXIT
+    for _ in $(seq 1 90); do
+        curl -sf "$BASE/auth/test" >/dev/null 2>&1 && break
+        kill -0 $pid 2>/dev/null || { tail -20 "target/bench-$label.log"; exit 1; }
+        sleep 1
+    done
+    "$JAVA" bench/BookBenchmark.java "$BASE" "$label" "$REQUESTS" "$CONCURRENCY" | tee -a target/bench-results.txt
+    kill $pid
+    wait $pid 2>/dev/null || true
+    trap - EXIT
+}
+
+: > target/bench-results.txt
+run_mode platform "${SPRING_PROFILES_ACTIVE:-default}"
+run_mode virtual "${SPRING_PROFILES_ACTIVE:-default},virtual"
+echo "Results written to target/bench-results.txt"
@@ -0,0 +1,43 @@
+#!/bin/bash
+# Boots one node on the loadtest profile (in-memory H2 in PostgreSQL mode, stub mail
+# sender, no network needed) and drives a mixed register/login/search/book/confirm/list
+# load against it with bench/LoadTest.java.
+#
+#   bench/load-test.sh [seconds] [concurrency] [mix]
+#
+# Extra application arguments go in APP_ARGS, e.g. to try a larger pool:
+#   APP_ARGS="--spring.datasource.hikari.maximum-pool-size=20" bench/load-test.sh 120 100
+# Set MVN_ARGS=-o to build from the local Maven repository only.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+SECONDS_TO_RUN=${1:-60}
+CONCURRENCY=${2:-50}
+MIX=${3:-register=2,login=8,search=20,book=20,confirm=10,list=40}
+DOCTORS=${DOCTORS:-20}
+PATIENTS=${PATIENTS:-200}
+PORT=${PORT:-18080}
+LABEL=${LABEL:-loadtest}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+BASE="http://localhost:$PORT/api"
+
+mvn -B -q ${MVN_ARGS:-} -DskipTests package
+JAR=$(ls target/*.jar | grep -v original | head -1)
+
+SPRING_PROFILES_ACTIVE=loadtest PORT=$PORT DDL_AUTO=create \
+    "$JAVA" -Xms1g -Xmx1g -jar "$JAR" ${APP_ARGS:-} > target/loadtest-app.log 2>&1 &
+PID=$!
+trap "kill $PID 2>/dev/null" EXIT
+for _ in $(seq 1 90); do
+    curl -sf "$BASE/auth/test" >/dev/null 2>&1 && break
+    kill -0 $PID 2>/dev/null || { tail -20 target/loadtest-app.log; exit 1; }
+    sleep 1
+done
+
+"$JAVA" bench/LoadTest.java "$BASE" "$LABEL" "$SECONDS_TO_RUN" "$CONCURRENCY" "$DOCTORS" "$PATIENTS" "$MIX" \
+    | tee target/loadtest-results.txt
+# Pool saturation and outbox backlog at the end of the run
+curl -s "http://localhost:$PORT/actuator/prometheus" \
+    | grep -E '^(hikaricp_connections_(active|pending|timeout_total)|email_outbox_(pending|deliveries_total))' \
+    | tee -a target/loadtest-results.txt || true
+echo "Results written to target/loadtest-results.txt"
@@ -0,0 +1,78 @@
+package com.medibook.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.entity.AppointmentStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// One page of a doctor's appointment list written as JSON: the row records with their
+// streaming serializer against the nested HashMap per row the controller used to build
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentRowSerializationBenchmark {
+
+    @Param({"20", "200"})
+    private int rows;
+
+    private ObjectMapper objectMapper;
+    private List<DoctorAppointmentRow> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        page = new ArrayList<>(rows);
+        LocalDate date = LocalDate.of(2030, 1, 7);
+        for (int i = 0; i < rows; i++) {
+            page.add(new DoctorAppointmentRow((long) i, date.plusDays(i / 16), LocalTime.of(9, 0).plusMinutes(30L * (i % 16)),
+                    AppointmentStatus.values()[i % 4], "Follow-up visit " + i, "Bring previous reports",
+                    new BigDecimal("500.00"), i % 4 == 2 ? "Rest and fluids" : null,
+                    1000L + i, "Patient " + i, "patient" + i + "@example.com", "555-01" + i));
+        }
+    }
+
+    @Benchmark
+    public byte[] rowRecords() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] hashMapRows() throws Exception {
+        List<Map<String, Object>> response = new ArrayList<>();
+        for (DoctorAppointmentRow row : page) {
+            Map<String, Object> aptMap = new HashMap<>();
+            aptMap.put("id", row.id());
+            aptMap.put("appointmentDate", row.appointmentDate() != null ? row.appointmentDate().toString() : null);
+            aptMap.put("appointmentTime", row.appointmentTime() != null ? row.appointmentTime().toString() : null);
+            aptMap.put("status", row.status().toString());
+            aptMap.put("reason", row.reason());
+            aptMap.put("notes", row.notes());
+            aptMap.put("fee", row.fee());
+            aptMap.put("prescription", row.prescription());
+
+            Map<String, Object> patientInfo = new HashMap<>();
+            patientInfo.put("id", row.patientId());
+            Map<String, Object> patientUser = new HashMap<>();
+            patientUser.put("name", row.patientName());
+            patientUser.put("email", row.patientEmail());
+            patientUser.put("phone", row.patientPhone());
+            patientInfo.put("user", patientUser);
+            aptMap.put("patient", patientInfo);
+
+            response.add(aptMap);
+        }
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,76 @@
+package com.medibook.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Token issue and the three claim lookups the auth filter can hit: a verified-cache
+// hit, a full signature check and a rejected token. The signature check cycles through
+// distinct tokens with the cache sized to zero, so it never sees a hit.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtUtil cachingJwtUtil;
+    private JwtUtil verifyingJwtUtil;
+    private String token;
+    private String[] distinctTokens;
+    private int next;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        cachingJwtUtil = jwtUtil(10_000);
+        verifyingJwtUtil = jwtUtil(0);
+        token = cachingJwtUtil.generateToken("patient@example.com", "PATIENT");
+        tamperedToken = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        cachingJwtUtil.extractClaims(token);
+        distinctTokens = new String[4096];
+        for (int i = 0; i < distinctTokens.length; i++) {
+            distinctTokens[i] = cachingJwtUtil.generateToken("patient" + i + "@example.com", "PATIENT");
+        }
+    }
+
+    private static JwtUtil jwtUtil(long verifiedCacheMaxSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", verifiedCacheMaxSize);
+        ReflectionTestUtils.setField(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingJwtUtil.generateToken("patient@example.com", "PATIENT");
+    }
+
+    @Benchmark
+    public Object extractClaimsCached() {
+        return cachingJwtUtil.extractClaims(token);
+    }
+
+    @Benchmark
+    public Object extractClaimsVerified() {
+        next = (next + 1) & (distinctTokens.length - 1);
+        return verifyingJwtUtil.extractClaims(distinctTokens[next]);
+    }
+
+    @Benchmark
+    public Object extractClaimsRejected() {
+        try {
+            return verifyingJwtUtil.extractClaims(tamperedToken);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
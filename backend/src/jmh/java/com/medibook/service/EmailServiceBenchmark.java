@@ -0,0 +1,52 @@
+package com.medibook.service;
+
+import com.medibook.entity.EmailOutbox;
+import com.medibook.repository.EmailOutboxRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+// Message formatting for the outbox; the repository is a stub that keeps the last
+// row, so only building the subject and body is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+    private EmailService emailService;
+    private EmailOutbox last;
+
+    @Setup
+    public void setUp() {
+        EmailOutboxRepository repository = (EmailOutboxRepository) Proxy.newProxyInstance(
+                EmailOutboxRepository.class.getClassLoader(),
+                new Class<?>[] {EmailOutboxRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        last = (EmailOutbox) args[0];
+                        return last;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "emailOutboxRepository", repository);
+    }
+
+    @Benchmark
+    public EmailOutbox appointmentBooked() {
+        emailService.sendAppointmentBooked("patient@example.com", "Jane Patient", "John Doctor", "2030-01-07", "09:30");
+        return last;
+    }
+
+    @Benchmark
+    public EmailOutbox appointmentCompleted() {
+        emailService.sendAppointmentCompleted("patient@example.com", "Jane Patient", "John Doctor",
+                "Paracetamol 500mg twice daily for 3 days");
+        return last;
+    }
+}
@@ -0,0 +1,75 @@
+package com.medibook.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.AbstractCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String DOCTOR_DIRECTORY = "doctorDirectory";
+
+    public static final String INVALIDATION_CHANNEL = "medibook:cache-invalidation";
+
+    @Value("${cache.local.max-size:1000}")
+    private long localMaxSize;
+
+    @Value("${cache.local.ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    @Bean
+    public CaffeineCacheManager localCacheManager() {
+        CaffeineCacheManager manager = new CaffeineCacheManager(DOCTOR_DIRECTORY);
+        manager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .recordStats());
+        manager.setAllowNullValues(false);
+        return manager;
+    }
+
+    // Local-only unless RedisConfig contributes a remote tier (cache.redis.enabled=true)
+    @Bean
+    @Primary
+    public CacheManager cacheManager(CaffeineCacheManager localCacheManager,
+                                     ObjectProvider<RedisCacheManager> remoteCacheManager,
+                                     ObjectProvider<StringRedisTemplate> redisTemplate) {
+        RedisCacheManager remote = remoteCacheManager.getIfAvailable();
+        if (remote == null) {
+            return localCacheManager;
+        }
+        StringRedisTemplate publisher = redisTemplate.getObject();
+        return new AbstractCacheManager() {
+            @Override
+            protected Collection<? extends Cache> loadCaches() {
+                List<Cache> caches = new ArrayList<>();
+                for (String name : localCacheManager.getCacheNames()) {
+                    Cache shared = remote.getCache(name);
+                    if (shared == null) {
+                        caches.add(localCacheManager.getCache(name));
+                        continue;
+                    }
+                    caches.add(new TwoLevelCache(localCacheManager.getCache(name), shared,
+                            message -> publisher.convertAndSend(INVALIDATION_CHANNEL, message)));
+                }
+                return caches;
+            }
+        };
+    }
+}
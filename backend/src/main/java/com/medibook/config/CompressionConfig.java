@@ -0,0 +1,33 @@
+package com.medibook.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+// On-the-fly gzip for JSON responses. Bodies that already carry a Content-Encoding
+// (the pre-compressed public lists) are passed through untouched; event streams are
+// not in the MIME list so they are never buffered by the compressor.
+@Configuration
+public class CompressionConfig {
+
+    @Value("${server.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${server.compression.min-response-size:1024}")
+    private long minResponseSize;
+
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> compressionCustomizer() {
+        return factory -> {
+            Compression compression = new Compression();
+            compression.setEnabled(enabled);
+            compression.setMimeTypes(new String[] {"application/json", "text/html", "text/plain", "text/css", "application/javascript"});
+            compression.setMinResponseSize(DataSize.ofBytes(minResponseSize));
+            factory.setCompression(compression);
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.medibook.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// JDBC batching for flushes that write many rows of the same entity (bulk
+// transitions, outbox inserts). Statements are ordered so rows of one table
+// end up in the same batch. On PostgreSQL, add reWriteBatchedInserts=true to
+// the JDBC URL to collapse batched inserts further.
+@Configuration
+public class JpaBatchConfig {
+
+    @Value("${jpa.batch-size:50}")
+    private int batchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+        };
+    }
+}
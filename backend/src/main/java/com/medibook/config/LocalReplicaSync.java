@@ -0,0 +1,112 @@
+package com.medibook.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Stand-in for streaming replication when primary and replica are two local H2
+// databases (replica-local profile): every interval the primary's data is
+// copied into each replica in one transaction, so replicas lag by up to that interval.
+@Component
+@ConditionalOnProperty(name = "datasource.replica.local-sync-interval-ms")
+public class LocalReplicaSync {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicaSync.class);
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private ReplicaRoutingConfig replicaRoutingConfig;
+
+    private volatile boolean schemaCopied;
+
+    @Scheduled(fixedDelayString = "${datasource.replica.local-sync-interval-ms}")
+    public void sync() {
+        try {
+            if (!schemaCopied) {
+                List<String> schema = script("SCRIPT NODATA NOPASSWORDS NOSETTINGS");
+                for (DataSource replica : replicaRoutingConfig.getReplicas()) {
+                    try (Connection connection = writableConnection(replica);
+                         Statement statement = connection.createStatement()) {
+                        for (String sql : schema) {
+                            if (!sql.startsWith("--") && !sql.startsWith("CREATE USER")) {
+                                statement.execute(sql);
+                            }
+                        }
+                    }
+                }
+                schemaCopied = true;
+            }
+
+            List<String> tables = new ArrayList<>();
+            List<String> inserts = new ArrayList<>();
+            try (Connection connection = primaryDataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT table_name FROM information_schema.tables WHERE table_schema = 'public'")) {
+                    while (rs.next()) {
+                        tables.add(rs.getString(1));
+                    }
+                }
+                try (ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+                    while (rs.next()) {
+                        String sql = rs.getString(1);
+                        if (sql.startsWith("INSERT INTO")) {
+                            inserts.add(sql);
+                        }
+                    }
+                }
+            }
+
+            for (DataSource replica : replicaRoutingConfig.getReplicas()) {
+                try (Connection connection = writableConnection(replica);
+                     Statement statement = connection.createStatement()) {
+                    connection.setAutoCommit(false);
+                    statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                    for (String table : tables) {
+                        statement.execute("DELETE FROM \"public\".\"" + table + "\"");
+                    }
+                    for (String sql : inserts) {
+                        statement.execute(sql);
+                    }
+                    connection.commit();
+                    statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Local replica sync failed: {}", e.getMessage());
+        }
+    }
+
+    private List<String> script(String command) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        try (Connection connection = primaryDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(command)) {
+            while (rs.next()) {
+                statements.add(rs.getString(1));
+            }
+        }
+        return statements;
+    }
+
+    // Replica pools hand out read-only connections; the sync is the one writer
+    private static Connection writableConnection(DataSource replica) throws SQLException {
+        Connection connection = replica.getConnection();
+        connection.setReadOnly(false);
+        return connection;
+    }
+}
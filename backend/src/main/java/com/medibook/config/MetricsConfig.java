@@ -0,0 +1,76 @@
+package com.medibook.config;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Prometheus metrics on /actuator/prometheus. Boot binds the JVM, Tomcat, Hikari and
+// Hibernate session factory meters; this adds the controller method to the request
+// timers and a timer per JPA query. JWT verification and the email outbox register
+// their own meters (jwt.verify, email.outbox.*).
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Set<String> timedQueries = ConcurrentHashMap.newKeySet();
+
+    // Tags http.server.requests with the handling controller method, e.g.
+    // handler="AppointmentController.bookAppointment"
+    @Bean
+    public DefaultServerRequestObservationConvention serverRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                String name = handler instanceof HandlerMethod method
+                        ? method.getBeanType().getSimpleName() + "." + method.getMethod().getName()
+                        : "none";
+                return super.getLowCardinalityKeyValues(context).and("handler", name);
+            }
+        };
+    }
+
+    // Count and total time per JPQL/HQL string (hibernate_query_seconds{query=...}). The
+    // statistics only learn about a query once it has run, so new ones are picked up
+    // periodically; the set is bounded by the queries in the code.
+    @Scheduled(fixedDelayString = "${metrics.hibernate.query-scan-ms:30000}", initialDelay = 5000)
+    public void registerQueryTimers() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String query : statistics.getQueries()) {
+            if (timedQueries.add(query)) {
+                FunctionTimer.builder("hibernate.query", statistics,
+                                stats -> stats.getQueryStatistics(query).getExecutionCount(),
+                                stats -> stats.getQueryStatistics(query).getExecutionTotalTime(),
+                                TimeUnit.MILLISECONDS)
+                        .description("Executions and total execution time of one query")
+                        .tag("query", query)
+                        .register(meterRegistry);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.medibook.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+// Route limits for RateLimitFilter, which SecurityConfig puts in the filter chain
+@Configuration
+@PropertySource("classpath:ratelimit.properties")
+public class RateLimitConfig {
+
+    @Bean
+    @ConfigurationProperties("ratelimit")
+    public RateLimitProperties rateLimitProperties() {
+        return new RateLimitProperties();
+    }
+}
@@ -0,0 +1,265 @@
+package com.medibook.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Throttles the configured routes per client IP and per account before the controller
+// runs. A rejected request costs a path match, a map lookup and a CAS (plus parsing a
+// small JSON body for anonymous account limits), against the BCrypt check or booking
+// transaction it saves.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int MAX_KEY_LENGTH = 256;
+
+    private final List<RouteLimit> routes = new ArrayList<>();
+    private final Cache<String, TokenBucket> buckets;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        for (Map.Entry<String, RateLimitProperties.Route> entry : properties.getRoutes().entrySet()) {
+            RateLimitProperties.Route route = entry.getValue();
+            if (route.getPath() == null) {
+                continue;
+            }
+            routes.add(new RouteLimit(entry.getKey(), route,
+                    rejectedCounter(meterRegistry, entry.getKey(), "ip"),
+                    rejectedCounter(meterRegistry, entry.getKey(), "account")));
+        }
+        // Idle buckets go once they have refilled; size eviction only bites under a flood of distinct keys
+        buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfter(new Expiry<String, TokenBucket>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenBucket bucket, long currentTime) {
+                        return bucket.refillNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+                        return bucket.refillNanos();
+                    }
+                })
+                .build();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String route, String key) {
+        return Counter.builder("ratelimit.rejected")
+                .description("Requests answered 429 by the rate limiter")
+                .tag("route", route)
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RouteLimit route = match(request);
+        if (route == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long now = System.nanoTime();
+        RateLimitProperties.Limit ipLimit = route.config().getIp();
+        if (ipLimit != null) {
+            long wait = consume(route.name() + "|ip|" + request.getRemoteAddr(), ipLimit, now);
+            if (wait > 0) {
+                route.ipRejected().increment();
+                reject(response, wait);
+                return;
+            }
+        }
+        RateLimitProperties.Limit accountLimit = route.config().getAccount();
+        if (accountLimit != null) {
+            String account = signedInAccount();
+            if (account == null && route.config().getAccountField() != null) {
+                ReplayableRequest replayable = new ReplayableRequest(request);
+                request = replayable;
+                account = replayable.jsonField(route.config().getAccountField());
+            }
+            if (account != null) {
+                long wait = consume(route.name() + "|account|" + account, accountLimit, now);
+                if (wait > 0) {
+                    route.accountRejected().increment();
+                    reject(response, wait);
+                    return;
+                }
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private RouteLimit match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RouteLimit route : routes) {
+            if (route.config().getMethod().equalsIgnoreCase(request.getMethod())
+                    && pathMatcher.match(route.config().getPath(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private long consume(String key, RateLimitProperties.Limit limit, long now) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+        return buckets.get(key, k -> new TokenBucket(limit.getCapacity(), limit.getPeriod(), now)).tryConsume(now);
+    }
+
+    private static String signedInAccount() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(seconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"Too many requests, please retry later\"}");
+    }
+
+    private record RouteLimit(String name, RateLimitProperties.Route config, Counter ipRejected, Counter accountRejected) {
+    }
+
+    // Reads up to MAX_BODY_BYTES of the body to find the account, then hands the
+    // controller those bytes followed by whatever is left of the original stream
+    private class ReplayableRequest extends HttpServletRequestWrapper {
+
+        private final byte[] head;
+        private final boolean complete;
+        private ServletInputStream stream;
+
+        ReplayableRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            InputStream in = request.getInputStream();
+            head = in.readNBytes(MAX_BODY_BYTES + 1);
+            complete = head.length <= MAX_BODY_BYTES;
+        }
+
+        String jsonField(String field) {
+            if (!complete || head.length == 0) {
+                return null;
+            }
+            try {
+                JsonNode value = objectMapper.readTree(head).get(field);
+                if (value == null || value.isNull() || value.isContainerNode()) {
+                    return null;
+                }
+                String account = value.asText().trim().toLowerCase(Locale.ROOT);
+                return account.isEmpty() ? null : account;
+            } catch (IOException e) {
+                // Malformed bodies are left for the controller to reject
+                return null;
+            }
+        }
+
+        // The head is served from memory, then reads go to the container's stream. Async
+        // readers register with the container's stream; the listener is also called for the
+        // buffered head when nothing is left to arrive from the client
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                ServletInputStream rest = super.getInputStream();
+                stream = new ServletInputStream() {
+                    private int pos;
+
+                    @Override
+                    public int read() throws IOException {
+                        if (pos < head.length) {
+                            return head[pos++] & 0xff;
+                        }
+                        return rest.read();
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int off, int len) throws IOException {
+                        if (pos < head.length) {
+                            int n = Math.min(len, head.length - pos);
+                            System.arraycopy(head, pos, buffer, off, n);
+                            pos += n;
+                            return n;
+                        }
+                        return rest.read(buffer, off, len);
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return pos >= head.length && (complete || rest.isFinished());
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return pos < head.length || complete || rest.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener listener) {
+                        rest.setReadListener(new ReadListener() {
+                            @Override
+                            public void onDataAvailable() throws IOException {
+                                listener.onDataAvailable();
+                            }
+
+                            @Override
+                            public void onAllDataRead() throws IOException {
+                                if (pos < head.length) {
+                                    listener.onDataAvailable();
+                                }
+                                listener.onAllDataRead();
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                                listener.onError(t);
+                            }
+                        });
+                    }
+                };
+            }
+            return stream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.medibook.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bound from ratelimit.*; defaults are in ratelimit.properties
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Buckets kept in memory; the least useful are dropped beyond this
+    private long maxKeys = 100_000;
+
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Route {
+        private String method = "POST";
+
+        // Ant-style pattern, e.g. /api/auth/register/*
+        private String path;
+
+        private Limit ip;
+
+        private Limit account;
+
+        // JSON body field naming the account when the caller is not signed in
+        private String accountField;
+    }
+
+    @Data
+    public static class Limit {
+        private int capacity;
+
+        // Time for an empty bucket to fill back up to capacity
+        private Duration period;
+    }
+}
@@ -1,23 +1,121 @@
 package com.medibook.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.medibook.dto.AppointmentEvent;
+import com.medibook.dto.DoctorSummary;
+import com.medibook.service.AppointmentEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+// Shared second cache tier. Off by default; set cache.redis.enabled=true
+// (plus spring.data.redis.*) to let several nodes share cached reads.
 @Configuration
+@ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
 public class RedisConfig {
-    
-    // Redis temporarily disabled
-    // Uncomment when Redis is installed
-    
-    /*
+
+    public static final String APPOINTMENT_EVENTS_CHANNEL = "medibook:appointment-events";
+
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
+
+    @Value("${cache.redis.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    // Each cache gets a serializer bound to its value type, so nothing read back from Redis
+    // can name the class it is turned into. Caches without an entry here stay local-only.
+    @Bean
+    public RedisCacheManager remoteCacheManager(RedisConnectionFactory connectionFactory) {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JavaType directory = mapper.getTypeFactory().constructCollectionType(List.class, DoctorSummary.class);
+        return RedisCacheManager.builder(connectionFactory)
+                .withCacheConfiguration(CacheConfig.DOCTOR_DIRECTORY, typed(mapper, directory))
+                .disableCreateOnMissingCache()
+                .build();
+    }
+
+    private RedisCacheConfiguration typed(ObjectMapper mapper, JavaType type) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofSeconds(ttlSeconds))
+                .disableCachingNullValues()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new Jackson2JsonRedisSerializer<>(mapper, type)));
+    }
+
+    // Appointment changes go to the SSE streams on every node: each node publishes its own
+    // and dispatches the ones other nodes published. Delivery is best effort like the rest
+    // of the stream; a client that misses one gets it on its next list reload.
+    @Bean
+    public RedisMessageListenerContainer appointmentEventRelay(RedisConnectionFactory connectionFactory,
+                                                               StringRedisTemplate redisTemplate,
+                                                               AppointmentEventBus eventBus,
+                                                               ObjectMapper objectMapper) {
+        eventBus.setRelay(change -> {
+            try {
+                redisTemplate.convertAndSend(APPOINTMENT_EVENTS_CHANNEL,
+                        objectMapper.writeValueAsString(new RelayedEvent(eventBus.getNodeId(), change)));
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Relaying appointment {} change to other nodes failed: {}", change.appointmentId(), e.getMessage());
+            }
+        });
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            try {
+                RelayedEvent relayed = objectMapper.readValue(message.getBody(), RelayedEvent.class);
+                if (!eventBus.getNodeId().equals(relayed.origin())) {
+                    eventBus.dispatch(relayed.event());
+                }
+            } catch (IOException e) {
+                log.warn("Ignoring malformed appointment event: {}", e.getMessage());
+            }
+        }, new ChannelTopic(APPOINTMENT_EVENTS_CHANNEL));
+        return container;
+    }
+
+    private record RelayedEvent(String origin, AppointmentEvent event) {
+    }
+
+    // Evictions on any node clear the matching local entries everywhere
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
-        RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-        template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
-        return template;
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   CaffeineCacheManager localCacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+            org.springframework.cache.Cache cache = localCacheManager.getCache(parts[0]);
+            if (cache == null) {
+                return;
+            }
+            if (parts.length == 1) {
+                cache.clear();
+            } else {
+                cache.evict(parts[1]);
+            }
+        }, new ChannelTopic(CacheConfig.INVALIDATION_CHANNEL));
+        return container;
     }
-    */
-}
\ No newline at end of file
+}
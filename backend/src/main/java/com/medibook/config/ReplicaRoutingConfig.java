@@ -0,0 +1,130 @@
+package com.medibook.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Enabled by listing replica JDBC URLs in datasource.replica.urls (comma-separated).
+// The primary keeps the regular spring.datasource.* / hikari settings; each replica
+// gets a read-only copy of that pool configuration.
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.urls")
+public class ReplicaRoutingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingConfig.class);
+
+    // PostgreSQL standby lag in ms; 0 when everything received has been replayed
+    private static final String POSTGRES_LAG_QUERY =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    @Value("${datasource.replica.urls}")
+    private String[] replicaUrls;
+
+    @Value("${datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.read-your-writes-ms:5000}")
+    private long readYourWritesMs;
+
+    @Value("${datasource.replica.max-lag-ms:10000}")
+    private long maxLagMs;
+
+    @Value("${datasource.replica.lag-query:" + POSTGRES_LAG_QUERY + "}")
+    private String lagQuery;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource) {
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String key = "replica-" + (i + 1);
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(replicaUrls[i].trim());
+            config.setUsername(replicaUsername);
+            config.setPassword(replicaPassword);
+            config.setPoolName(key);
+            config.setReadOnly(true);
+            // Replica pools are not beans, so Boot does not instrument them (hikaricp_*{pool="replica-N"})
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(key, new HikariDataSource(config));
+        }
+        routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, new LinkedHashMap<>(replicas), readYourWritesMs);
+        log.info("Routing read-only transactions to {} replica(s)", replicas.size());
+        return routingDataSource;
+    }
+
+    // The lazy proxy defers choosing a target until the first statement, by which
+    // point the transaction's read-only flag is known
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    public List<DataSource> getReplicas() {
+        return new ArrayList<>(replicas.values());
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        if (lagQuery == null || lagQuery.isBlank() || routingDataSource == null) {
+            return;
+        }
+        replicas.forEach((key, replica) -> {
+            boolean lagging;
+            try (Connection connection = replica.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                lagging = rs.next() && rs.getDouble(1) > maxLagMs;
+            } catch (Exception e) {
+                log.warn("Replica lag check failed for {}: {}", key, e.getMessage());
+                lagging = true;
+            }
+            routingDataSource.setLagging(key, lagging);
+        });
+    }
+
+    @PreDestroy
+    public void closeReplicas() {
+        replicas.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,148 @@
+package com.medibook.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Read-only transactions go to a replica, everything else to the primary.
+// Callers who committed a write recently keep reading from the primary for a
+// short window so they see their own changes despite replication lag.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final List<String> replicaKeys;
+    private final Set<String> laggingReplicas = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long readYourWritesMs) {
+        this.replicaKeys = List.copyOf(replicas.keySet());
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(readYourWritesMs))
+                .maximumSize(100_000)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    // Runs work whose reads must not be stale (startup seeding, reconciliation) against the primary
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriter();
+            return PRIMARY;
+        }
+        if (Boolean.TRUE.equals(FORCE_PRIMARY.get())) {
+            return PRIMARY;
+        }
+        for (String caller : callerKeys()) {
+            if (recentWriters.getIfPresent(caller) != null) {
+                return PRIMARY;
+            }
+        }
+        int size = replicaKeys.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get((start + i) % size);
+            if (!laggingReplicas.contains(key)) {
+                return key;
+            }
+        }
+        // Every replica is too far behind
+        return PRIMARY;
+    }
+
+    public void setLagging(String replicaKey, boolean lagging) {
+        if (lagging ? laggingReplicas.add(replicaKey) : laggingReplicas.remove(replicaKey)) {
+            if (lagging) {
+                log.warn("Replica {} is lagging, routing reads to primary", replicaKey);
+            } else {
+                log.info("Replica {} caught up", replicaKey);
+            }
+        }
+    }
+
+    private void rememberWriter() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<String> callers = callerKeys();
+        if (callers.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                callers.forEach(caller -> recentWriters.put(caller, Boolean.TRUE));
+            }
+        });
+    }
+
+    // The authenticated user, or else the bearer token the client sent on a path the JWT
+    // filter skips. Clients without either get no read-your-writes window: behind a proxy
+    // their address is shared, and keying on it would pin every anonymous read to the primary.
+    private static List<String> callerKeys() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return List.of("user:" + auth.getName());
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String header = servletAttributes.getRequest().getHeader("Authorization");
+            if (header != null && header.startsWith("Bearer ") && header.length() > 7) {
+                // Only routing depends on it, so the token is not verified here; its signature identifies it
+                return List.of("token:" + header.substring(header.lastIndexOf('.') + 1));
+            }
+        }
+        return List.of();
+    }
+}
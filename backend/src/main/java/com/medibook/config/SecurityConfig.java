@@ -1,8 +1,11 @@
 package com.medibook.config;
 
+import com.medibook.controller.AppointmentController;
 import com.medibook.security.JwtAuthFilter;
 import com.medibook.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -32,9 +35,19 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService userDetailsService;  // ← ADD THIS
 
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Existing hashes keep working at any cost; AuthService rehashes them on login
+    @Value("${auth.bcrypt.strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     // ← ADD THIS METHOD
@@ -58,11 +71,17 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().permitAll()
             )
             .authenticationProvider(authenticationProvider())  // ← ADD THIS LINE
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
-        
+
+        // After the JWT filter so signed-in callers are limited by account
+        if (rateLimitProperties.isEnabled()) {
+            http.addFilterAfter(new RateLimitFilter(rateLimitProperties, meterRegistry), JwtAuthFilter.class);
+        }
+
         return http.build();
     }
 
@@ -72,6 +91,7 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of(AppointmentController.NEXT_CURSOR_HEADER, "Retry-After"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -0,0 +1,59 @@
+package com.medibook.config;
+
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mail sender that never opens a connection (loadtest profile): each send call waits
+// as long as an SMTP round trip would and then drops the messages, optionally
+// failing a share of them so the outbox retry path is exercised too.
+@Component
+@ConditionalOnProperty(name = "mail.stub.enabled", havingValue = "true")
+public class StubMailSender extends JavaMailSenderImpl {
+
+    // Connection setup and handshake, paid once per send call
+    @Value("${mail.stub.connect-latency-ms:50}")
+    private long connectLatencyMs;
+
+    @Value("${mail.stub.per-message-latency-ms:5}")
+    private long perMessageLatencyMs;
+
+    @Value("${mail.stub.failure-rate:0}")
+    private double failureRate;
+
+    private final AtomicLong sent = new AtomicLong();
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        try {
+            Thread.sleep(connectLatencyMs + perMessageLatencyMs * mimeMessages.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending", e);
+        }
+
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < mimeMessages.length; i++) {
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessages[i];
+                failures.put(original, new MailSendException("Simulated delivery failure"));
+            }
+        }
+        sent.addAndGet(mimeMessages.length - failures.size());
+        if (!failures.isEmpty()) {
+            throw new MailSendException(failures);
+        }
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.medibook.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket kept as a single timestamp (the GCRA form): the bucket is full when
+// the timestamp is at or before now, and each request pushes it one refill interval
+// forward. One CAS per request, no lock and no allocation.
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong readyAt;
+
+    // capacity requests at once, refilled evenly over period
+    TokenBucket(int capacity, Duration period, long now) {
+        this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.readyAt = new AtomicLong(now);
+    }
+
+    // 0 when a token was taken, otherwise how many nanoseconds until one is available
+    long tryConsume(long now) {
+        while (true) {
+            long current = readyAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (readyAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // After this long unused the bucket is full again, so forgetting it changes nothing
+    long refillNanos() {
+        return burstNanos;
+    }
+}
@@ -0,0 +1,145 @@
+package com.medibook.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Caffeine in front of Redis. Remote failures are counted and otherwise
+// ignored so a Redis outage only costs cache hits, never requests.
+public class TwoLevelCache implements Cache {
+
+    private final Cache local;
+    private final Cache remote;
+    private final Consumer<String> invalidationPublisher;
+
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder remoteErrors = new LongAdder();
+
+    public TwoLevelCache(Cache local, Cache remote, Consumer<String> invalidationPublisher) {
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    public Cache getLocal() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = remoteGet(key);
+        if (value != null) {
+            local.put(key, value.get());
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        return value != null ? (T) value.get() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return local.get(key, () -> {
+            ValueWrapper value = remoteGet(key);
+            if (value != null) {
+                return (T) value.get();
+            }
+            T loaded = valueLoader.call();
+            remotePut(key, loaded);
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, value);
+        remotePut(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        try {
+            remote.evict(key);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+        }
+        publish(getName() + "|" + key);
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        try {
+            remote.clear();
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+        }
+        publish(getName());
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMisses() {
+        return remoteMisses.sum();
+    }
+
+    public long getRemoteErrors() {
+        return remoteErrors.sum();
+    }
+
+    private ValueWrapper remoteGet(Object key) {
+        try {
+            ValueWrapper value = remote.get(key);
+            if (value != null) {
+                remoteHits.increment();
+            } else {
+                remoteMisses.increment();
+            }
+            return value;
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            return null;
+        }
+    }
+
+    private void remotePut(Object key, Object value) {
+        try {
+            remote.put(key, value);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            invalidationPublisher.accept(message);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+        }
+    }
+}
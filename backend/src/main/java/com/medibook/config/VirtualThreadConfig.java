@@ -0,0 +1,59 @@
+package com.medibook.config;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+// Opt-in (execution.virtual-threads=true, see application-virtual.properties):
+// Tomcat request handling and the application task executor used by @Async
+// run on virtual threads. Requires a Java 21+ runtime; the build still targets 17.
+@Configuration
+@ConditionalOnProperty(name = "execution.virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Value("${execution.max-in-flight-requests:200}")
+    private int maxInFlightRequests;
+
+    @Value("${execution.in-flight-wait-ms:1000}")
+    private long inFlightWaitMs;
+
+    public VirtualThreadConfig() {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            throw new IllegalStateException("execution.virtual-threads=true needs a Java 21+ runtime, running on Java " + feature);
+        }
+        log.info("Request handling and @Async work run on virtual threads");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(new VirtualThreadExecutor("http-vt-"));
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(new VirtualThreadExecutor("async-vt-"));
+    }
+
+    // Virtual threads remove the Tomcat thread ceiling, so cap concurrent requests here
+    // instead of letting thousands of them queue on the small Hikari pool
+    @Bean
+    public FilterRegistrationBean<InFlightRequestLimiter> inFlightRequestLimiter() {
+        FilterRegistrationBean<InFlightRequestLimiter> registration =
+                new FilterRegistrationBean<>(new InFlightRequestLimiter(maxInFlightRequests, inFlightWaitMs));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -1,10 +1,19 @@
 package com.medibook.controller;
 
+import com.medibook.config.ReplicaRoutingDataSource;
 import com.medibook.entity.Doctor;
+import com.medibook.entity.User;
 import com.medibook.repository.DoctorRepository;
+import com.medibook.repository.UserRepository;
+import com.medibook.service.AdminStatsService;
+import com.medibook.service.CacheStatsService;
+import com.medibook.service.DoctorService;
+import com.medibook.service.ResponseVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -17,15 +26,36 @@ public class AdminController {
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ResponseVersions responseVersions;
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    @Autowired
+    private AdminStatsService statsService;
+
     @PutMapping("/doctors/{id}/verify")
     public ResponseEntity<?> verifyDoctor(@PathVariable Long id) {
         try {
-            Doctor doctor = doctorRepository.findById(id)
+            // Loaded from the primary since it is written back
+            Doctor doctor = ReplicaRoutingDataSource.onPrimary(() -> doctorRepository.findById(id))
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
             
+            boolean wasVerified = Boolean.TRUE.equals(doctor.getVerified());
             doctor.setVerified(true);
             doctor.setVerifiedAt(LocalDateTime.now());
             doctorRepository.save(doctor);
+            doctorService.onDoctorChanged(doctor);
+            if (!wasVerified) {
+                statsService.onDoctorVerified();
+            }
             
             return ResponseEntity.ok(Map.of("message", "Doctor verified successfully!"));
         } catch (Exception e) {
@@ -33,18 +63,37 @@ public class AdminController {
         }
     }
 
+    // Signs the user out everywhere: UserChangeListener revokes their sessions on commit
+    @PutMapping("/users/{id}/disable")
+    public ResponseEntity<?> disableUser(@PathVariable Long id) {
+        try {
+            User user = ReplicaRoutingDataSource.onPrimary(() -> userRepository.findById(id))
+                .orElseThrow(() -> new RuntimeException("User not found"));
+            user.setEnabled(false);
+            userRepository.save(user);
+            return ResponseEntity.ok(Map.of("message", "User disabled"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/doctors/pending")
-    public ResponseEntity<?> getPendingDoctors() {
-        return ResponseEntity.ok(doctorRepository.findByVerified(false));
+    public ResponseEntity<?> getPendingDoctors(ServletWebRequest webRequest) {
+        String etag = responseVersions.etag("pending", ResponseVersions.DOCTOR_DIRECTORY);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(doctorRepository.findByVerified(false));
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getStats());
     }
 
     @GetMapping("/stats")
     public ResponseEntity<?> getStats() {
-        // Implement stats logic
-        return ResponseEntity.ok(Map.of(
-            "totalDoctors", doctorRepository.count(),
-            "verifiedDoctors", doctorRepository.findByVerified(true).size(),
-            "pendingDoctors", doctorRepository.findByVerified(false).size()
-        ));
+        // Served from in-memory counters, see AdminStatsService
+        return ResponseEntity.ok(statsService.getStats());
     }
 }
\ No newline at end of file
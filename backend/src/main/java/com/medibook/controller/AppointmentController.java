@@ -1,17 +1,30 @@
 package com.medibook.controller;
 
-import com.medibook.entity.Doctor;
+import com.medibook.dto.AppointmentPage;
+import com.medibook.dto.DoctorAppointmentRow;
+import com.medibook.dto.PatientAppointmentRow;
 import com.medibook.entity.Appointment;
 import com.medibook.entity.AppointmentStatus;
-import com.medibook.entity.Patient;
 import com.medibook.repository.AppointmentRepository;
 import com.medibook.repository.DoctorRepository;
 import com.medibook.repository.PatientRepository;
 import com.medibook.repository.UserRepository;
-import com.medibook.service.EmailService;
+import com.medibook.service.AppointmentEventBus;
+import com.medibook.service.AppointmentService;
+import com.medibook.service.IdempotencyService;
+import com.medibook.service.ResponseVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -22,6 +35,10 @@ import java.util.*;
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class AppointmentController {
 
+    // Listing endpoints return one keyset page as the body; the token for the
+    // following page (if any) is sent in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
@@ -35,37 +52,39 @@ public class AppointmentController {
     private UserRepository userRepository;
 
     @Autowired
-    private EmailService emailService;
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentEventBus eventBus;
+
+    @Autowired
+    private ResponseVersions responseVersions;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
 
-    // Book Appointment
+    // Book Appointment; a retry carrying the same Idempotency-Key gets the first response back
     @PostMapping("/book")
-    public ResponseEntity<?> bookAppointment(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> bookAppointment(@RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("appointments/book", idempotencyKey, request, () -> book(request));
+    }
+
+    private ResponseEntity<?> book(Map<String, Object> request) {
         try {
             System.out.println("Booking request received: " + request);
 
             Long userId = Long.parseLong(request.get("patientId").toString());
             Long doctorId = Long.parseLong(request.get("doctorId").toString());
 
-            Patient patient = patientRepository.findByUserId(userId)
-                    .orElseThrow(() -> new RuntimeException("Patient profile not found for user ID: " + userId));
-
-            System.out.println("Found patient: " + patient.getId());
-
-            Doctor doctor = doctorRepository.findById(doctorId)
-                    .orElseThrow(() -> new RuntimeException("Doctor not found: " + doctorId));
-
-            System.out.println("Found doctor: " + doctor.getId());
-
-            Appointment apt = new Appointment();
-            apt.setPatient(patient);
-            apt.setDoctor(doctor);
-
+            LocalDate date = null;
             if (request.get("appointmentDate") != null) {
                 String dateStr = request.get("appointmentDate").toString();
-                apt.setAppointmentDate(LocalDate.parse(dateStr));
+                date = LocalDate.parse(dateStr);
                 System.out.println("Date set: " + dateStr);
             }
 
+            LocalTime time = null;
             if (request.get("appointmentTime") != null) {
                 String timeStr = request.get("appointmentTime").toString();
                 if (!timeStr.contains(":")) {
@@ -74,31 +93,20 @@ public class AppointmentController {
                 if (timeStr.length() == 5) {
                     timeStr = timeStr + ":00";
                 }
-                apt.setAppointmentTime(LocalTime.parse(timeStr));
+                time = LocalTime.parse(timeStr);
                 System.out.println("Time set: " + timeStr);
             }
 
-            apt.setReason(request.get("reason") != null ? request.get("reason").toString() : "");
-            apt.setNotes(request.get("notes") != null ? request.get("notes").toString() : "");
-            apt.setFee(doctor.getConsultationFee());
-            apt.setStatus(AppointmentStatus.PENDING);
-
-            Appointment savedApt = appointmentRepository.save(apt);
+            Appointment savedApt = appointmentService.bookAppointment(
+                    userId,
+                    doctorId,
+                    date,
+                    time,
+                    request.get("reason") != null ? request.get("reason").toString() : "",
+                    request.get("notes") != null ? request.get("notes").toString() : ""
+            );
             System.out.println("Appointment saved with ID: " + savedApt.getId());
 
-            // Send booking email
-            try {
-                emailService.sendAppointmentBooked(
-                        patient.getUser().getEmail(),
-                        patient.getUser().getName(),
-                        doctor.getUser().getName(),
-                        apt.getAppointmentDate().toString(),
-                        apt.getAppointmentTime().toString()
-                );
-            } catch (Exception e) {
-                System.err.println("Email failed: " + e.getMessage());
-            }
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Appointment booked successfully!");
@@ -106,6 +114,12 @@ public class AppointmentController {
             response.put("status", savedApt.getStatus().toString());
             return ResponseEntity.ok(response);
 
+        } catch (DataAccessException | TransactionException e) {
+            // Not an answer about the request, so it is not stored against the Idempotency-Key
+            System.err.println("Booking failed, database unavailable: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Booking is temporarily unavailable, please retry"));
         } catch (Exception e) {
             System.err.println("Error booking appointment: " + e.getMessage());
             e.printStackTrace();
@@ -117,53 +131,37 @@ public class AppointmentController {
 
     // Get Patient Appointments
     @GetMapping("/patient/{userId}")
-    public ResponseEntity<?> getPatientAppointments(@PathVariable Long userId) {
+    public ResponseEntity<?> getPatientAppointments(
+            @PathVariable Long userId,
+            @RequestParam(required = false) AppointmentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
         try {
+            // Answered from the change counters before any database access
+            String etag = responseVersions.etag(webRequest.getRequest().getQueryString(),
+                    ResponseVersions.patientUserAppointments(userId));
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return null;
+            }
             System.out.println("Fetching appointments for user ID: " + userId);
 
-            Optional<Patient> patientOpt = patientRepository.findByUserId(userId);
+            Optional<Long> patientId = patientRepository.findIdByUserId(userId);
 
-            if (!patientOpt.isPresent()) {
+            if (!patientId.isPresent()) {
                 System.out.println("No patient profile found for user ID: " + userId);
                 return ResponseEntity.ok(new ArrayList<>());
             }
 
-            Patient patient = patientOpt.get();
-            System.out.println("Found patient ID: " + patient.getId());
-
-            List<Appointment> appointments = appointmentRepository.findByPatientId(patient.getId());
-            System.out.println("Found " + appointments.size() + " appointments");
-
-            List<Map<String, Object>> response = new ArrayList<>();
-            for (Appointment apt : appointments) {
-                Map<String, Object> aptMap = new HashMap<>();
-                aptMap.put("id", apt.getId());
-                aptMap.put("appointmentDate", apt.getAppointmentDate() != null ? apt.getAppointmentDate().toString() : null);
-                aptMap.put("appointmentTime", apt.getAppointmentTime() != null ? apt.getAppointmentTime().toString() : null);
-                aptMap.put("status", apt.getStatus().toString());
-                aptMap.put("reason", apt.getReason());
-                aptMap.put("notes", apt.getNotes());
-                aptMap.put("fee", apt.getFee());
-                aptMap.put("prescription", apt.getPrescription());
-
-                Map<String, Object> doctorInfo = new HashMap<>();
-                if (apt.getDoctor() != null) {
-                    doctorInfo.put("id", apt.getDoctor().getId());
-                    doctorInfo.put("specialization", apt.getDoctor().getSpecialization());
-
-                    Map<String, Object> doctorUser = new HashMap<>();
-                    if (apt.getDoctor().getUser() != null) {
-                        doctorUser.put("name", apt.getDoctor().getUser().getName());
-                        doctorUser.put("email", apt.getDoctor().getUser().getEmail());
-                    }
-                    doctorInfo.put("user", doctorUser);
-                }
-                aptMap.put("doctor", doctorInfo);
+            System.out.println("Found patient ID: " + patientId.get());
 
-                response.add(aptMap);
-            }
+            AppointmentPage<PatientAppointmentRow> page = appointmentService.getPatientAppointmentPage(
+                    patientId.get(), status, from, to, cursor, limit);
+            System.out.println("Found " + page.getItems().size() + " appointments");
 
-            return ResponseEntity.ok(response);
+            return withNextCursor(page);
         } catch (Exception e) {
             System.err.println("Error fetching appointments: " + e.getMessage());
             e.printStackTrace();
@@ -173,44 +171,38 @@ public class AppointmentController {
         }
     }
 
+    // Appointment totals per status for the patient dashboard
+    @GetMapping("/patient/{userId}/counts")
+    public ResponseEntity<?> getPatientAppointmentCounts(@PathVariable Long userId) {
+        Optional<Long> patientId = patientRepository.findIdByUserId(userId);
+        if (!patientId.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(appointmentService.getPatientAppointmentCounts(patientId.get()));
+    }
+
     // Get Doctor Appointments by Doctor ID
     @GetMapping("/doctor/{doctorId}")
-    public ResponseEntity<?> getDoctorAppointments(@PathVariable Long doctorId) {
+    public ResponseEntity<?> getDoctorAppointments(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false) AppointmentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
         try {
-            System.out.println("Fetching appointments for doctor ID: " + doctorId);
-            List<Appointment> appointments = appointmentRepository.findByDoctorId(doctorId);
-            System.out.println("Found " + appointments.size() + " appointments");
-
-            List<Map<String, Object>> response = new ArrayList<>();
-            for (Appointment apt : appointments) {
-                Map<String, Object> aptMap = new HashMap<>();
-                aptMap.put("id", apt.getId());
-                aptMap.put("appointmentDate", apt.getAppointmentDate() != null ? apt.getAppointmentDate().toString() : null);
-                aptMap.put("appointmentTime", apt.getAppointmentTime() != null ? apt.getAppointmentTime().toString() : null);
-                aptMap.put("status", apt.getStatus().toString());
-                aptMap.put("reason", apt.getReason());
-                aptMap.put("notes", apt.getNotes());
-                aptMap.put("fee", apt.getFee());
-                aptMap.put("prescription", apt.getPrescription());
-
-                Map<String, Object> patientInfo = new HashMap<>();
-                if (apt.getPatient() != null) {
-                    patientInfo.put("id", apt.getPatient().getId());
-
-                    Map<String, Object> patientUser = new HashMap<>();
-                    if (apt.getPatient().getUser() != null) {
-                        patientUser.put("name", apt.getPatient().getUser().getName());
-                        patientUser.put("email", apt.getPatient().getUser().getEmail());
-                        patientUser.put("phone", apt.getPatient().getUser().getPhone());
-                    }
-                    patientInfo.put("user", patientUser);
-                }
-                aptMap.put("patient", patientInfo);
-
-                response.add(aptMap);
+            String etag = responseVersions.etag(webRequest.getRequest().getQueryString(),
+                    ResponseVersions.doctorAppointments(doctorId));
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return null;
             }
+            System.out.println("Fetching appointments for doctor ID: " + doctorId);
+            AppointmentPage<DoctorAppointmentRow> page = appointmentService.getDoctorAppointmentPage(
+                    doctorId, status, from, to, cursor, limit);
+            System.out.println("Found " + page.getItems().size() + " appointments");
 
-            return ResponseEntity.ok(response);
+            return withNextCursor(page);
         } catch (Exception e) {
             System.err.println("Error fetching doctor appointments: " + e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -219,53 +211,36 @@ public class AppointmentController {
 
     // Get Doctor Appointments by User ID
     @GetMapping("/doctor/user/{userId}")
-    public ResponseEntity<?> getDoctorAppointmentsByUserId(@PathVariable Long userId) {
+    public ResponseEntity<?> getDoctorAppointmentsByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) AppointmentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
         try {
+            String etag = responseVersions.etag(webRequest.getRequest().getQueryString(),
+                    ResponseVersions.doctorUserAppointments(userId));
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return null;
+            }
             System.out.println("Fetching appointments for doctor user ID: " + userId);
 
-            Optional<Doctor> doctorOpt = doctorRepository.findByUserId(userId);
+            Optional<Long> doctorId = doctorRepository.findIdByUserId(userId);
 
-            if (!doctorOpt.isPresent()) {
+            if (!doctorId.isPresent()) {
                 System.out.println("No doctor profile found for user ID: " + userId);
                 return ResponseEntity.ok(new ArrayList<>());
             }
 
-            Doctor doctor = doctorOpt.get();
-            System.out.println("Found doctor ID: " + doctor.getId());
-
-            List<Appointment> appointments = appointmentRepository.findByDoctorId(doctor.getId());
-            System.out.println("Found " + appointments.size() + " appointments");
-
-            List<Map<String, Object>> response = new ArrayList<>();
-            for (Appointment apt : appointments) {
-                Map<String, Object> aptMap = new HashMap<>();
-                aptMap.put("id", apt.getId());
-                aptMap.put("appointmentDate", apt.getAppointmentDate() != null ? apt.getAppointmentDate().toString() : null);
-                aptMap.put("appointmentTime", apt.getAppointmentTime() != null ? apt.getAppointmentTime().toString() : null);
-                aptMap.put("status", apt.getStatus().toString());
-                aptMap.put("reason", apt.getReason());
-                aptMap.put("notes", apt.getNotes());
-                aptMap.put("fee", apt.getFee());
-                aptMap.put("prescription", apt.getPrescription());
-
-                Map<String, Object> patientInfo = new HashMap<>();
-                if (apt.getPatient() != null) {
-                    patientInfo.put("id", apt.getPatient().getId());
-
-                    Map<String, Object> patientUser = new HashMap<>();
-                    if (apt.getPatient().getUser() != null) {
-                        patientUser.put("name", apt.getPatient().getUser().getName());
-                        patientUser.put("email", apt.getPatient().getUser().getEmail());
-                        patientUser.put("phone", apt.getPatient().getUser().getPhone());
-                    }
-                    patientInfo.put("user", patientUser);
-                }
-                aptMap.put("patient", patientInfo);
+            System.out.println("Found doctor ID: " + doctorId.get());
 
-                response.add(aptMap);
-            }
+            AppointmentPage<DoctorAppointmentRow> page = appointmentService.getDoctorAppointmentPage(
+                    doctorId.get(), status, from, to, cursor, limit);
+            System.out.println("Found " + page.getItems().size() + " appointments");
 
-            return ResponseEntity.ok(response);
+            return withNextCursor(page);
         } catch (Exception e) {
             System.err.println("Error fetching doctor appointments: " + e.getMessage());
             e.printStackTrace();
@@ -273,11 +248,45 @@ public class AppointmentController {
         }
     }
 
+    // Appointment totals per status for the doctor dashboard
+    @GetMapping("/doctor/user/{userId}/counts")
+    public ResponseEntity<?> getDoctorAppointmentCounts(@PathVariable Long userId) {
+        Optional<Long> doctorId = doctorRepository.findIdByUserId(userId);
+        if (!doctorId.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(appointmentService.getDoctorAppointmentCounts(doctorId.get()));
+    }
+
+    // Live changes to a doctor's appointments as server-sent events; EventSource clients
+    // resume automatically through the Last-Event-ID header after a reconnect
+    @GetMapping(value = "/stream/doctor/user/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDoctorAppointments(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Optional<Long> doctorId = doctorRepository.findIdByUserId(userId);
+        if (!doctorId.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(eventBus.subscribeDoctor(doctorId.get(), lastEventId));
+    }
+
+    @GetMapping(value = "/stream/patient/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPatientAppointments(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Optional<Long> patientId = patientRepository.findIdByUserId(userId);
+        if (!patientId.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(eventBus.subscribePatient(patientId.get(), lastEventId));
+    }
+
     // Get All Appointments (Admin)
     @GetMapping("/all")
     public ResponseEntity<?> getAllAppointments() {
         try {
-            List<Appointment> appointments = appointmentRepository.findAll();
+            List<Appointment> appointments = appointmentRepository.findAllWithParticipants();
             System.out.println("Total appointments in database: " + appointments.size());
             return ResponseEntity.ok(appointments);
         } catch (Exception e) {
@@ -290,24 +299,7 @@ public class AppointmentController {
     @PutMapping("/{id}/confirm")
     public ResponseEntity<?> confirmAppointment(@PathVariable Long id) {
         try {
-            Appointment apt = appointmentRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Appointment not found"));
-            apt.setStatus(AppointmentStatus.CONFIRMED);
-            appointmentRepository.save(apt);
-
-            // Send confirmation email
-            try {
-                emailService.sendAppointmentConfirmed(
-                        apt.getPatient().getUser().getEmail(),
-                        apt.getPatient().getUser().getName(),
-                        apt.getDoctor().getUser().getName(),
-                        apt.getAppointmentDate().toString(),
-                        apt.getAppointmentTime().toString()
-                );
-            } catch (Exception e) {
-                System.err.println("Email failed: " + e.getMessage());
-            }
-
+            appointmentService.confirmAppointment(id);
             return ResponseEntity.ok(Map.of("message", "Appointment confirmed!"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -318,59 +310,56 @@ public class AppointmentController {
     @PutMapping("/{id}/cancel")
     public ResponseEntity<?> cancelAppointment(@PathVariable Long id) {
         try {
-            Appointment apt = appointmentRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Appointment not found"));
-            apt.setStatus(AppointmentStatus.CANCELLED);
-            appointmentRepository.save(apt);
-
-            // Send cancellation email
-            try {
-                emailService.sendAppointmentCancelled(
-                        apt.getPatient().getUser().getEmail(),
-                        apt.getPatient().getUser().getName(),
-                        apt.getDoctor().getUser().getName(),
-                        apt.getAppointmentDate().toString()
-                );
-            } catch (Exception e) {
-                System.err.println("Email failed: " + e.getMessage());
-            }
-
+            appointmentService.cancelAppointment(id);
             return ResponseEntity.ok(Map.of("message", "Appointment cancelled!"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
-    // Complete Appointment with Prescription
-    @PutMapping("/{id}/complete")
-    public ResponseEntity<?> completeAppointment(@PathVariable Long id, @RequestBody Map<String, String> body) {
+    // Bulk confirm / cancel: {"ids": [1, 2, 3]} -> one result per id
+    @PutMapping("/bulk/confirm")
+    public ResponseEntity<?> bulkConfirm(@RequestBody Map<String, Object> request) {
+        return bulkTransition(request, AppointmentStatus.CONFIRMED);
+    }
+
+    @PutMapping("/bulk/cancel")
+    public ResponseEntity<?> bulkCancel(@RequestBody Map<String, Object> request) {
+        return bulkTransition(request, AppointmentStatus.CANCELLED);
+    }
+
+    private ResponseEntity<?> bulkTransition(Map<String, Object> request, AppointmentStatus target) {
         try {
-            Appointment apt = appointmentRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Appointment not found"));
-            apt.setStatus(AppointmentStatus.COMPLETED);
-            
-            String prescription = null;
-            if (body != null && body.containsKey("prescription")) {
-                prescription = body.get("prescription");
-                apt.setPrescription(prescription);
+            if (!(request.get("ids") instanceof List<?> rawIds) || rawIds.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "ids must be a non-empty list"));
             }
-            appointmentRepository.save(apt);
-
-            // Send completion email with prescription
-            try {
-                emailService.sendAppointmentCompleted(
-                        apt.getPatient().getUser().getEmail(),
-                        apt.getPatient().getUser().getName(),
-                        apt.getDoctor().getUser().getName(),
-                        prescription
-                );
-            } catch (Exception e) {
-                System.err.println("Email failed: " + e.getMessage());
+            List<Long> ids = new ArrayList<>(rawIds.size());
+            for (Object rawId : rawIds) {
+                ids.add(Long.parseLong(rawId.toString()));
             }
+            return ResponseEntity.ok(Map.of("results", appointmentService.bulkTransition(ids, target)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
+    // Complete Appointment with Prescription
+    @PutMapping("/{id}/complete")
+    public ResponseEntity<?> completeAppointment(@PathVariable Long id, @RequestBody Map<String, String> body) {
+        try {
+            String prescription = body != null ? body.get("prescription") : null;
+            appointmentService.completeAppointment(id, prescription);
             return ResponseEntity.ok(Map.of("message", "Appointment completed!"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<?> withNextCursor(AppointmentPage<?> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(page.getItems());
+    }
+}
@@ -3,7 +3,10 @@ package com.medibook.controller;
 import com.medibook.dto.*;
 import com.medibook.entity.Role;
 import com.medibook.service.AuthService;
+import com.medibook.service.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
@@ -27,6 +30,8 @@ public class AuthController {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Patient registered successfully!");
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -41,6 +46,8 @@ public class AuthController {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Doctor registered successfully!");
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -55,6 +62,8 @@ public class AuthController {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Admin registered successfully!");
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -67,6 +76,8 @@ public class AuthController {
         try {
             JwtResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (PasswordHasher.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid email or password");
@@ -74,6 +85,37 @@ public class AuthController {
         }
     }
 
+    // Swaps a refresh token for a new access token and a new refresh token
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> request) {
+        String refreshToken = request.get("refreshToken");
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "refreshToken is required"));
+        }
+        try {
+            return ResponseEntity.ok(authService.refresh(refreshToken));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Session expired, please log in again"));
+        }
+    }
+
+    // Ends the session the refresh token belongs to, including its access tokens
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody Map<String, String> request) {
+        String refreshToken = request.get("refreshToken");
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            authService.logout(refreshToken);
+        }
+        return ResponseEntity.ok(Map.of("message", "Logged out"));
+    }
+
+    // The password hashing pool is saturated; nothing was checked or stored
+    private ResponseEntity<?> busy(PasswordHasher.BusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("API Working!");
@@ -1,14 +1,29 @@
 package com.medibook.controller;
 
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.dto.DoctorSummary;
 import com.medibook.entity.Doctor;
 import com.medibook.entity.User;
 import com.medibook.repository.DoctorRepository;
 import com.medibook.repository.UserRepository;
+import com.medibook.service.AvailabilityService;
+import com.medibook.service.CompressedResponseCache;
+import com.medibook.service.DoctorScheduleService;
+import com.medibook.service.DoctorSearchIndex;
+import com.medibook.service.DoctorService;
+import com.medibook.service.ResponseVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,14 +39,36 @@ public class DoctorController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorSearchIndex searchIndex;
+
+    @Autowired
+    private DoctorScheduleService scheduleService;
+
+    @Autowired
+    private ResponseVersions responseVersions;
+
+    @Autowired
+    private CompressedResponseCache compressedResponses;
+
+    // The directory lists are conditional GETs: a matching If-None-Match is answered with
+    // 304 from the change counter alone, otherwise the pre-serialized body is served
     @GetMapping
-    public ResponseEntity<List<Doctor>> getAllDoctors() {
-        return ResponseEntity.ok(doctorRepository.findAll());
+    public ResponseEntity<byte[]> getAllDoctors(ServletWebRequest webRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return directoryList("all", webRequest, acceptEncoding);
     }
 
     @GetMapping("/public/all")
-    public ResponseEntity<List<Doctor>> getAllDoctorsPublic() {
-        return ResponseEntity.ok(doctorRepository.findAll());
+    public ResponseEntity<byte[]> getAllDoctorsPublic(ServletWebRequest webRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return directoryList("all", webRequest, acceptEncoding);
     }
 
     @GetMapping("/{id}")
@@ -48,20 +85,128 @@ public class DoctorController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    // Free slots served from the in-memory calendar, no database access
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<?> getAvailability(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate start = from != null ? from : LocalDate.now();
+            LocalDate end = to != null ? to : start;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("doctorId", id);
+            response.put("slotMinutes", availabilityService.getSlotMinutes());
+            response.put("days", availabilityService.getAvailability(id, start, end));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Earliest open slot from the given date (default today) within the booking horizon
+    @GetMapping("/{id}/next-slot")
+    public ResponseEntity<?> getNextFreeSlot(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        Map<String, Object> slot = availabilityService.findNextFreeSlot(id, from != null ? from : LocalDate.now());
+        if (slot == null) {
+            return ResponseEntity.ok(Map.of("doctorId", id, "message",
+                    "No free slot in the next " + availabilityService.getHorizonDays() + " days"));
+        }
+        slot.put("doctorId", id);
+        return ResponseEntity.ok(slot);
+    }
+
+    // Weekly template plus upcoming exceptions
+    @GetMapping("/{id}/schedule")
+    public ResponseEntity<?> getSchedule(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(scheduleService.getSchedule(id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // {"rules": [{"dayOfWeek": "MONDAY", "startTime": "09:00", "endTime": "17:00",
+    //             "slotMinutes": 30, "breakStart": "13:00", "breakEnd": "14:00"}, ...]}
+    @PutMapping("/{id}/schedule")
+    public ResponseEntity<?> updateSchedule(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        try {
+            if (!(request.get("rules") instanceof List<?> rawRules)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "rules must be a list"));
+            }
+            List<Map<String, Object>> rules = new ArrayList<>(rawRules.size());
+            for (Object rawRule : rawRules) {
+                if (!(rawRule instanceof Map<?, ?> rule)) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "each rule must be an object"));
+                }
+                Map<String, Object> copy = new HashMap<>();
+                rule.forEach((key, value) -> copy.put(String.valueOf(key), value));
+                rules.add(copy);
+            }
+            return ResponseEntity.ok(Map.of("rules", scheduleService.replaceWeeklyRules(id, rules)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    // {"date": "2026-12-25", "reason": "Holiday"} for a day off, or with startTime/endTime for different hours
+    @PutMapping("/{id}/schedule/exceptions")
+    public ResponseEntity<?> putScheduleException(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        try {
+            return ResponseEntity.ok(scheduleService.putException(id, request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @DeleteMapping("/{id}/schedule/exceptions/{exceptionId}")
+    public ResponseEntity<?> deleteScheduleException(@PathVariable Long id, @PathVariable Long exceptionId) {
+        try {
+            scheduleService.deleteException(id, exceptionId);
+            return ResponseEntity.ok(Map.of("message", "Schedule exception removed"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Prefix/typo-tolerant search with fee, experience and verified facets, served from memory
+    @GetMapping("/search")
+    public ResponseEntity<?> searchDoctors(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) BigDecimal minFee,
+            @RequestParam(required = false) BigDecimal maxFee,
+            @RequestParam(required = false) Integer minExperience,
+            @RequestParam(required = false) Boolean verified,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0 || limit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and 100"));
+        }
+        return ResponseEntity.ok(searchIndex.search(q, minFee, maxFee, minExperience, verified, limit));
+    }
+
     @GetMapping("/verified")
-    public ResponseEntity<List<Doctor>> getVerifiedDoctors() {
-        return ResponseEntity.ok(doctorRepository.findByVerified(true));
+    public ResponseEntity<byte[]> getVerifiedDoctors(ServletWebRequest webRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return directoryList("verified", webRequest, acceptEncoding);
     }
 
     @GetMapping("/specialization/{spec}")
-    public ResponseEntity<List<Doctor>> getDoctorsBySpecialization(@PathVariable String spec) {
-        return ResponseEntity.ok(doctorRepository.findBySpecialization(spec));
+    public ResponseEntity<List<DoctorSummary>> getDoctorsBySpecialization(@PathVariable String spec, ServletWebRequest webRequest) {
+        String etag = responseVersions.etag("spec:" + spec, ResponseVersions.DOCTOR_DIRECTORY);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(doctorService.getDoctorsBySpecialization(spec));
     }
 
     @PutMapping("/profile/{userId}")
     public ResponseEntity<?> updateDoctorProfile(@PathVariable Long userId, @RequestBody Map<String, Object> profileData) {
         try {
-            Optional<Doctor> doctorOpt = doctorRepository.findByUserId(userId);
+            // Loaded from the primary since it is written back
+            Optional<Doctor> doctorOpt = ReplicaRoutingDataSource.onPrimary(() -> doctorRepository.findByUserId(userId));
             if (!doctorOpt.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
@@ -105,10 +250,21 @@ public class DoctorController {
             }
 
             doctorRepository.save(doctor);
+            doctorService.onDoctorChanged(doctor);
+            responseVersions.doctorProfileChanged(doctor.getId());
 
             return ResponseEntity.ok(Map.of("message", "Profile updated successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<byte[]> directoryList(String list, ServletWebRequest webRequest, String acceptEncoding) {
+        String etag = responseVersions.etag(list, ResponseVersions.DOCTOR_DIRECTORY);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return compressedResponses.respond("doctors:" + list, etag, acceptEncoding,
+                () -> list.equals("verified") ? doctorService.getVerifiedDoctors() : doctorService.getAllDoctors());
+    }
+}
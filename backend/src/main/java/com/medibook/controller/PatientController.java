@@ -1,7 +1,9 @@
 package com.medibook.controller;
 
+import com.medibook.config.ReplicaRoutingDataSource;
 import com.medibook.entity.*;
 import com.medibook.repository.*;
+import com.medibook.service.ResponseVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +20,9 @@ public class PatientController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ResponseVersions responseVersions;
+
     @GetMapping("/profile/{userId}")
     public ResponseEntity<?> getPatientProfile(@PathVariable Long userId) {
         try {
@@ -53,8 +58,8 @@ public class PatientController {
     @PutMapping("/profile/{userId}")
     public ResponseEntity<?> updatePatientProfile(@PathVariable Long userId, @RequestBody Map<String, Object> profileData) {
         try {
-            // Find patient by user ID
-            Optional<Patient> patientOpt = patientRepository.findByUserId(userId);
+            // Find patient by user ID, on the primary since it is written back
+            Optional<Patient> patientOpt = ReplicaRoutingDataSource.onPrimary(() -> patientRepository.findByUserId(userId));
             if (!patientOpt.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
@@ -86,6 +91,7 @@ public class PatientController {
             }
             
             patientRepository.save(patient);
+            responseVersions.patientProfileChanged(patient.getId());
             
             return ResponseEntity.ok(Map.of("message", "Profile updated successfully"));
         } catch (Exception e) {
@@ -1,33 +1,57 @@
 package com.medibook.controller;
 
+import com.medibook.entity.Payment;
+import com.medibook.entity.PaymentStatus;
+import com.medibook.service.FakePaymentGateway;
+import com.medibook.service.IdempotencyService;
+import com.medibook.service.PaymentService;
+import com.medibook.service.PaymentGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/payments")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class PaymentController {
 
-    @PostMapping("/create-order")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> request) {
-        try {
-            String amount = request.get("amount").toString();
-            String appointmentId = request.get("appointmentId").toString();
+    @Autowired
+    private IdempotencyService idempotencyService;
 
-            // Generate order ID
-            String orderId = "order_" + UUID.randomUUID().toString().substring(0, 8);
+    @Autowired
+    private PaymentService paymentService;
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("orderId", orderId);
-            response.put("amount", amount);
-            response.put("currency", "INR");
-            response.put("appointmentId", appointmentId);
+    // Present only while the in-process gateway is configured
+    @Autowired(required = false)
+    private FakePaymentGateway fakeGateway;
 
-            return ResponseEntity.ok(response);
+    // A retry carrying the same Idempotency-Key gets the same order back
+    @PostMapping("/create-order")
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("payments/create-order", idempotencyKey, request, () -> newOrder(request));
+    }
+
+    private ResponseEntity<?> newOrder(Map<String, Object> request) {
+        try {
+            // Any amount in the request is ignored; the order is priced from the appointment
+            Long appointmentId = Long.valueOf(request.get("appointmentId").toString());
+            Payment payment = paymentService.createOrder(appointmentId);
+            return ResponseEntity.ok(toResponse(payment));
+        } catch (DataAccessException | TransactionException | PaymentGateway.UnavailableException e) {
+            // Not an answer about the request, so it is not stored against the Idempotency-Key
+            System.err.println("Creating order failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Payments are temporarily unavailable, please retry"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -38,16 +62,76 @@ public class PaymentController {
         try {
             String paymentId = request.get("paymentId").toString();
             String orderId = request.get("orderId").toString();
+            Object signature = request.get("signature");
 
-            // In production, verify with Razorpay API
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Payment verified successfully");
-            response.put("paymentId", paymentId);
+            Payment payment = paymentService.verify(orderId, paymentId, signature == null ? null : signature.toString());
+            boolean paid = payment.getStatus() == PaymentStatus.AUTHORIZED || payment.getStatus() == PaymentStatus.CAPTURED;
 
+            Map<String, Object> response = toResponse(payment);
+            response.put("success", paid);
+            response.put("message", paid ? "Payment verified successfully" : "Payment is " + payment.getStatus());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Gateway callbacks are stored and acknowledged; PaymentReconciler applies them
+    @PostMapping("/webhook")
+    public ResponseEntity<?> webhook(@RequestBody String payload, @RequestHeader HttpHeaders headers) {
+        try {
+            String signature = headers.getFirst(paymentService.webhookSignatureHeader());
+            return switch (paymentService.receiveWebhook(payload, signature)) {
+                case ACCEPTED -> ResponseEntity.accepted().body(Map.of("received", true));
+                case DUPLICATE -> ResponseEntity.ok(Map.of("received", true, "duplicate", true));
+                case REJECTED -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid webhook signature"));
+            };
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/order/{orderId}")
+    public ResponseEntity<?> getOrder(@PathVariable String orderId) {
+        try {
+            return ResponseEntity.ok(toResponse(paymentService.findByOrderId(orderId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/appointment/{appointmentId}")
+    public ResponseEntity<?> getAppointmentPayments(@PathVariable Long appointmentId) {
+        List<Map<String, Object>> payments = paymentService.findByAppointment(appointmentId).stream()
+                .map(this::toResponse)
+                .toList();
+        return ResponseEntity.ok(payments);
+    }
+
+    // Plays the gateway's checkout widget for local development and tests
+    @PostMapping("/fake-checkout")
+    public ResponseEntity<?> fakeCheckout(@RequestBody Map<String, Object> request) {
+        if (fakeGateway == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(fakeGateway.checkout(request.get("orderId").toString()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> toResponse(Payment payment) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", payment.getOrderId());
+        response.put("amount", payment.getAmount());
+        response.put("currency", payment.getCurrency());
+        response.put("appointmentId", payment.getAppointment().getId());
+        response.put("gateway", payment.getGateway());
+        response.put("status", payment.getStatus());
+        if (payment.getGatewayPaymentId() != null) {
+            response.put("paymentId", payment.getGatewayPaymentId());
+        }
+        return response;
+    }
+}
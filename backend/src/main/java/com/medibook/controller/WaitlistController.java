@@ -0,0 +1,83 @@
+package com.medibook.controller;
+
+import com.medibook.entity.Appointment;
+import com.medibook.entity.WaitlistEntry;
+import com.medibook.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/waitlist")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    // {"patientId": <userId>, "doctorId": 1, "date": "2026-11-02", "earliestTime": "10:00", "latestTime": "13:00", "reason": "..."}
+    @PostMapping
+    public ResponseEntity<?> join(@RequestBody Map<String, Object> request) {
+        try {
+            Long userId = Long.parseLong(request.get("patientId").toString());
+            Long doctorId = Long.parseLong(request.get("doctorId").toString());
+            LocalDate date = request.get("date") != null ? LocalDate.parse(request.get("date").toString()) : null;
+            LocalTime earliest = request.get("earliestTime") != null ? LocalTime.parse(request.get("earliestTime").toString()) : null;
+            LocalTime latest = request.get("latestTime") != null ? LocalTime.parse(request.get("latestTime").toString()) : null;
+            String reason = request.get("reason") != null ? request.get("reason").toString() : "";
+
+            WaitlistEntry entry = waitlistService.join(userId, doctorId, date, earliest, latest, reason);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Added to the waitlist");
+            response.put("entryId", entry.getId());
+            response.put("status", entry.getStatus().toString());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/patient/{userId}")
+    public ResponseEntity<?> getPatientEntries(@PathVariable Long userId) {
+        return ResponseEntity.ok(waitlistService.getActiveEntries(userId));
+    }
+
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<?> accept(@PathVariable Long id) {
+        try {
+            Appointment apt = waitlistService.accept(id);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Appointment booked from the waitlist!",
+                    "appointmentId", apt.getId(),
+                    "status", apt.getStatus().toString()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @PostMapping("/{id}/decline")
+    public ResponseEntity<?> decline(@PathVariable Long id) {
+        try {
+            waitlistService.decline(id);
+            return ResponseEntity.ok(Map.of("message", "Offer declined"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> leave(@PathVariable Long id) {
+        try {
+            waitlistService.leave(id);
+            return ResponseEntity.ok(Map.of("message", "Removed from the waitlist"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.medibook.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.medibook.entity.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// One committed appointment change as pushed to dashboard streams; type is CREATED
+// or the status the appointment moved to
+public record AppointmentEvent(
+        String eventId,
+        String type,
+        Long appointmentId,
+        Long doctorId,
+        Long patientId,
+        AppointmentStatus status,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        String prescription,
+        LocalDateTime occurredAt,
+        @JsonIgnore long sequence) {
+}
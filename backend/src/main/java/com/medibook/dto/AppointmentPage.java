@@ -0,0 +1,13 @@
+package com.medibook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AppointmentPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
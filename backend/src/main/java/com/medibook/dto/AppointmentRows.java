@@ -0,0 +1,31 @@
+package com.medibook.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.medibook.entity.AppointmentStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+final class AppointmentRows {
+
+    private AppointmentRows() {
+    }
+
+    static void writeCommonFields(JsonGenerator gen, Long id, LocalDate date, LocalTime time, AppointmentStatus status,
+                                  String reason, String notes, BigDecimal fee, String prescription) throws IOException {
+        gen.writeNumberField("id", id);
+        gen.writeStringField("appointmentDate", date != null ? date.toString() : null);
+        gen.writeStringField("appointmentTime", time != null ? time.toString() : null);
+        gen.writeStringField("status", status.name());
+        gen.writeStringField("reason", reason);
+        gen.writeStringField("notes", notes);
+        if (fee != null) {
+            gen.writeNumberField("fee", fee);
+        } else {
+            gen.writeNullField("fee");
+        }
+        gen.writeStringField("prescription", prescription);
+    }
+}
@@ -0,0 +1,53 @@
+package com.medibook.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.medibook.entity.AppointmentStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// One row of a doctor's appointment list, filled by a constructor-expression query
+@JsonSerialize(using = DoctorAppointmentRow.Serializer.class)
+public record DoctorAppointmentRow(
+        Long id,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        AppointmentStatus status,
+        String reason,
+        String notes,
+        BigDecimal fee,
+        String prescription,
+        Long patientId,
+        String patientName,
+        String patientEmail,
+        String patientPhone) {
+
+    // Writes the nested patient/user shape straight to the output stream
+    public static class Serializer extends StdSerializer<DoctorAppointmentRow> {
+
+        public Serializer() {
+            super(DoctorAppointmentRow.class);
+        }
+
+        @Override
+        public void serialize(DoctorAppointmentRow row, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            AppointmentRows.writeCommonFields(gen, row.id(), row.appointmentDate(), row.appointmentTime(), row.status(),
+                    row.reason(), row.notes(), row.fee(), row.prescription());
+            gen.writeObjectFieldStart("patient");
+            gen.writeNumberField("id", row.patientId());
+            gen.writeObjectFieldStart("user");
+            gen.writeStringField("name", row.patientName());
+            gen.writeStringField("email", row.patientEmail());
+            gen.writeStringField("phone", row.patientPhone());
+            gen.writeEndObject();
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+    }
+}
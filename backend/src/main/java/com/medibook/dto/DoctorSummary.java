@@ -0,0 +1,45 @@
+package com.medibook.dto;
+
+import com.medibook.entity.Doctor;
+import com.medibook.entity.Role;
+import com.medibook.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Directory entry as served and cached: the doctor/user shape the UI reads, without
+// credentials, so the shared cache tier never holds password hashes
+public record DoctorSummary(
+        Long id,
+        UserSummary user,
+        String specialization,
+        String qualification,
+        Integer experience,
+        BigDecimal consultationFee,
+        String hospitalName,
+        String hospitalAddress,
+        String licenseNumber,
+        Boolean verified,
+        LocalDateTime verifiedAt,
+        String about,
+        Double rating,
+        Integer totalReviews) {
+
+    public record UserSummary(Long id, String name, String email, String phone, Role role) {
+    }
+
+    public static DoctorSummary of(Doctor doctor) {
+        User user = doctor.getUser();
+        return new DoctorSummary(doctor.getId(),
+                new UserSummary(user.getId(), user.getName(), user.getEmail(), user.getPhone(), user.getRole()),
+                doctor.getSpecialization(), doctor.getQualification(), doctor.getExperience(),
+                doctor.getConsultationFee(), doctor.getHospitalName(), doctor.getHospitalAddress(),
+                doctor.getLicenseNumber(), doctor.getVerified(), doctor.getVerifiedAt(), doctor.getAbout(),
+                doctor.getRating(), doctor.getTotalReviews());
+    }
+
+    public static List<DoctorSummary> of(List<Doctor> doctors) {
+        return doctors.stream().map(DoctorSummary::of).toList();
+    }
+}
@@ -13,4 +13,7 @@ public class JwtResponse {
     private String name;
     private String email;
     private String role;
+    private String refreshToken;
+    // Seconds until the access token expires
+    private long expiresIn;
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.medibook.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.medibook.entity.AppointmentStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// One row of a patient's appointment list, filled by a constructor-expression query
+@JsonSerialize(using = PatientAppointmentRow.Serializer.class)
+public record PatientAppointmentRow(
+        Long id,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        AppointmentStatus status,
+        String reason,
+        String notes,
+        BigDecimal fee,
+        String prescription,
+        Long doctorId,
+        String doctorSpecialization,
+        String doctorName,
+        String doctorEmail) {
+
+    // Writes the nested doctor/user shape straight to the output stream
+    public static class Serializer extends StdSerializer<PatientAppointmentRow> {
+
+        public Serializer() {
+            super(PatientAppointmentRow.class);
+        }
+
+        @Override
+        public void serialize(PatientAppointmentRow row, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            AppointmentRows.writeCommonFields(gen, row.id(), row.appointmentDate(), row.appointmentTime(), row.status(),
+                    row.reason(), row.notes(), row.fee(), row.prescription());
+            gen.writeObjectFieldStart("doctor");
+            gen.writeNumberField("id", row.doctorId());
+            gen.writeStringField("specialization", row.doctorSpecialization());
+            gen.writeObjectFieldStart("user");
+            gen.writeStringField("name", row.doctorName());
+            gen.writeStringField("email", row.doctorEmail());
+            gen.writeEndObject();
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+    }
+}
@@ -8,18 +8,24 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_appointment_doctor_slot",
+            columnNames = {"doctor_id", "appointment_date", "appointment_time", "slot_active"})
+}, indexes = {
+    @Index(name = "idx_appointment_patient_keyset", columnList = "patient_id, appointment_date, appointment_time, id"),
+    @Index(name = "idx_appointment_doctor_keyset", columnList = "doctor_id, appointment_date, appointment_time, id")
+})
 @Data
 public class Appointment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     private Patient patient;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doctor_id", nullable = false)
     private Doctor doctor;
 
@@ -29,10 +35,22 @@ public class Appointment {
     @Column(name = "appointment_time")
     private LocalTime appointmentTime;
 
+    // Slot length the appointment was booked with. If the doctor later switches to another
+    // slot length, every new slot overlapping the appointment stays booked. NULL on rows
+    // booked before the column existed, which are taken to be availability.slot-minutes long.
+    @Column(name = "slot_minutes")
+    private Integer slotMinutes;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private AppointmentStatus status = AppointmentStatus.PENDING;
 
+    // TRUE while the appointment holds its slot, NULL once cancelled. NULLs never
+    // collide in a unique constraint, so cancelled rows don't block rebooking.
+    // Rows from before the column existed are set by SlotActiveBackfill.
+    @Column(name = "slot_active")
+    private Boolean slotActive = Boolean.TRUE;
+
     @Column(length = 500)
     private String reason;
 
@@ -48,6 +66,11 @@ public class Appointment {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+        this.slotActive = status == AppointmentStatus.CANCELLED ? null : Boolean.TRUE;
+    }
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) {
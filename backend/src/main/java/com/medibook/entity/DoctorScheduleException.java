@@ -0,0 +1,30 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Overrides the weekly rule for one date: no hours means the doctor is off that day
+@Entity
+@Table(name = "doctor_schedule_exceptions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_schedule_exception_doctor_date", columnNames = {"doctor_id", "exception_date"})
+})
+@Data
+public class DoctorScheduleException {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "exception_date", nullable = false)
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private String reason;
+}
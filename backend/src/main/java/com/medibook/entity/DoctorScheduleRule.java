@@ -0,0 +1,38 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+// One row per doctor and weekday: working hours, slot length and an optional break
+@Entity
+@Table(name = "doctor_schedule_rules", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_schedule_rule_doctor_day", columnNames = {"doctor_id", "day_of_week"})
+})
+@Data
+public class DoctorScheduleRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week", nullable = false)
+    private DayOfWeek dayOfWeek;
+
+    @Column(nullable = false)
+    private LocalTime startTime;
+
+    @Column(nullable = false)
+    private LocalTime endTime;
+
+    @Column(nullable = false)
+    private Integer slotMinutes;
+
+    private LocalTime breakStart;
+
+    private LocalTime breakEnd;
+}
@@ -0,0 +1,7 @@
+package com.medibook.entity;
+
+public enum EmailStatus {
+    PENDING,
+    SENT,
+    DEAD
+}
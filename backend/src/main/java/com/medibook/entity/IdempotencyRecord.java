@@ -0,0 +1,39 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One Idempotency-Key per endpoint: claimed (IN_PROGRESS) by the node running the
+// request, then holding the response that every retry with the same key gets back
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+@Data
+public class IdempotencyRecord {
+    // "<scope>:<SHA-256 of caller and client key>"
+    @Id
+    @Column(name = "storage_key", length = 255)
+    private String storageKey;
+
+    // SHA-256 of the request body, so a key reused for a different request is refused
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_body", length = 8000)
+    private String responseBody;
+}
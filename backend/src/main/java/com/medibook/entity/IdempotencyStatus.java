@@ -0,0 +1,6 @@
+package com.medibook.entity;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,60 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "payments", indexes = {
+    @Index(name = "idx_payment_appointment", columnList = "appointment_id, status"),
+    @Index(name = "idx_payment_capture_due", columnList = "status, capture_claimed_at")
+})
+@Data
+public class Payment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "appointment_id", nullable = false)
+    private Appointment appointment;
+
+    @Column(nullable = false, length = 32)
+    private String gateway;
+
+    @Column(name = "order_id", nullable = false, unique = true, length = 64)
+    private String orderId;
+
+    @Column(name = "gateway_payment_id", unique = true, length = 64)
+    private String gatewayPaymentId;
+
+    // In the smallest currency unit (paise), the way gateways take it
+    @Column(nullable = false)
+    private Long amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency = "INR";
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PaymentStatus status = PaymentStatus.CREATED;
+
+    // Set by the worker that owns the capture call; cleared only by the payment leaving AUTHORIZED
+    @Column(name = "capture_claimed_at")
+    private LocalDateTime captureClaimedAt;
+
+    @Column(nullable = false)
+    private Integer captureAttempts = 0;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime authorizedAt;
+
+    private LocalDateTime capturedAt;
+}
@@ -0,0 +1,59 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Gateway callbacks as received. The webhook endpoint only stores them;
+// PaymentReconciler applies them to payments in batches.
+@Entity
+@Table(name = "payment_events", indexes = {
+    @Index(name = "idx_payment_event_due", columnList = "status, next_attempt_at")
+})
+@Data
+public class PaymentEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_event_seq")
+    @SequenceGenerator(name = "payment_event_seq", sequenceName = "payment_event_seq", allocationSize = 50)
+    private Long id;
+
+    // Gateway name and the gateway's own event id; redeliveries of an event collide here
+    @Column(name = "event_key", nullable = false, unique = true, length = 128)
+    private String eventKey;
+
+    @Column(nullable = false, length = 64)
+    private String type;
+
+    @Column(name = "order_id", length = 64)
+    private String orderId;
+
+    @Column(name = "gateway_payment_id", length = 64)
+    private String gatewayPaymentId;
+
+    private Long amount;
+
+    // Why the gateway declined, on payment.failed
+    @Column(length = 500)
+    private String reason;
+
+    @Column(length = 4000)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentEventStatus status = PaymentEventStatus.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt = LocalDateTime.now();
+
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,8 @@
+package com.medibook.entity;
+
+public enum PaymentEventStatus {
+    PENDING,
+    PROCESSED,
+    IGNORED,
+    DEAD
+}
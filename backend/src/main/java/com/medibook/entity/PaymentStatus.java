@@ -0,0 +1,12 @@
+package com.medibook.entity;
+
+// CREATED -> AUTHORIZED -> CAPTURED -> REFUNDED, with FAILED reachable from
+// CREATED and AUTHORIZED. A capture notice may skip AUTHORIZED when callbacks
+// arrive out of order.
+public enum PaymentStatus {
+    CREATED,
+    AUTHORIZED,
+    CAPTURED,
+    FAILED,
+    REFUNDED
+}
@@ -0,0 +1,22 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Change counter behind the ETags of one list endpoint family, shared by every node.
+// Write paths bump it in their own transaction, see ResponseVersions.
+@Entity
+@Table(name = "response_versions")
+@Data
+public class ResponseVersion {
+    @Id
+    @Column(name = "version_key", length = 100)
+    private String key;
+
+    @Column(nullable = false)
+    private long counter;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,28 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Sessions whose access tokens must stop working before they expire. Every node
+// polls this table into its in-memory TokenRevocationList.
+@Entity
+@Table(name = "revoked_sessions", indexes = {
+    @Index(name = "idx_revoked_session_revoked_at", columnList = "revoked_at")
+})
+@Data
+public class RevokedSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, unique = true, length = 36)
+    private String sessionId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    // Past this every access token of the session has expired, and the row can go
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -1,11 +1,13 @@
 package com.medibook.entity;
 
+import com.medibook.service.UserChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 @Data
 public class User {
     @Id
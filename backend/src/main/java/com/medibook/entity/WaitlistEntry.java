@@ -0,0 +1,51 @@
+package com.medibook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+    @Index(name = "idx_waitlist_status_date", columnList = "status, requested_date"),
+    @Index(name = "idx_waitlist_patient", columnList = "patient_id, status")
+})
+@Data
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Column(name = "requested_date", nullable = false)
+    private LocalDate requestedDate;
+
+    // Optional window the patient can make on that day
+    private LocalTime earliestTime;
+
+    private LocalTime latestTime;
+
+    private String reason;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WaitlistStatus status = WaitlistStatus.WAITING;
+
+    // Slot currently held for this patient while status is OFFERED
+    private LocalTime offeredTime;
+
+    private LocalDateTime offerExpiresAt;
+
+    private Long appointmentId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
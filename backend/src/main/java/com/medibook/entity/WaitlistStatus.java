@@ -0,0 +1,10 @@
+package com.medibook.entity;
+
+public enum WaitlistStatus {
+    WAITING,
+    OFFERED,
+    ACCEPTED,
+    DECLINED,
+    EXPIRED,
+    CANCELLED
+}
@@ -1,22 +1,157 @@
 package com.medibook.repository;
 
+import com.medibook.dto.DoctorAppointmentRow;
+import com.medibook.dto.PatientAppointmentRow;
 import com.medibook.entity.Appointment;
 import com.medibook.entity.AppointmentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
     
+    // Associations are lazy; each read path names the graph it needs so it runs as one joined select
+    @EntityGraph(attributePaths = {"patient.user", "doctor.user"})
+    @Query("SELECT a FROM Appointment a")
+    List<Appointment> findAllWithParticipants();
+    
+    @EntityGraph(attributePaths = {"patient.user", "doctor.user"})
+    Optional<Appointment> findWithParticipantsById(Long id);
+
+    @EntityGraph(attributePaths = {"patient.user", "doctor.user"})
+    @Query("SELECT a FROM Appointment a WHERE a.id IN :ids")
+    List<Appointment> findAllWithParticipantsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Row locks for bulk transitions, taken in id order so concurrent batches can't deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("SELECT a FROM Appointment a WHERE a.id IN :ids ORDER BY a.id")
+    List<Appointment> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Serializes payment order creation for one appointment across nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("SELECT a FROM Appointment a WHERE a.id = :id")
+    Optional<Appointment> lockById(@Param("id") Long id);
+    
     List<Appointment> findByPatientId(Long patientId);
     
     List<Appointment> findByDoctorId(Long doctorId);
     
+    // Keyset pages ordered newest first by (appointmentDate, appointmentTime, id). Each
+    // listing has a first-page and a next-page query, with and without a status filter, so
+    // every predicate is always bound and the keyset index can seek straight to the cursor
+    // instead of scanning the pages before it. Callers pass the whole date range when unfiltered.
+    String PATIENT_ROWS = "SELECT new com.medibook.dto.PatientAppointmentRow(a.id, a.appointmentDate, a.appointmentTime, " +
+           "a.status, a.reason, a.notes, a.fee, a.prescription, d.id, d.specialization, u.name, u.email) " +
+           "FROM Appointment a JOIN a.doctor d JOIN d.user u WHERE a.patient.id = :patientId " +
+           "AND a.appointmentDate BETWEEN :fromDate AND :toDate AND a.appointmentTime IS NOT NULL ";
+    String DOCTOR_ROWS = "SELECT new com.medibook.dto.DoctorAppointmentRow(a.id, a.appointmentDate, a.appointmentTime, " +
+           "a.status, a.reason, a.notes, a.fee, a.prescription, p.id, u.name, u.email, u.phone) " +
+           "FROM Appointment a JOIN a.patient p JOIN p.user u WHERE a.doctor.id = :doctorId " +
+           "AND a.appointmentDate BETWEEN :fromDate AND :toDate AND a.appointmentTime IS NOT NULL ";
+    String WITH_STATUS = "AND a.status = :status ";
+    String AFTER_CURSOR = "AND (a.appointmentDate, a.appointmentTime, a.id) < (:cursorDate, :cursorTime, :cursorId) ";
+    String NEWEST_FIRST = "ORDER BY a.appointmentDate DESC, a.appointmentTime DESC, a.id DESC";
+
+    @Query(PATIENT_ROWS + NEWEST_FIRST)
+    List<PatientAppointmentRow> findPatientFirstPage(@Param("patientId") Long patientId,
+                                                     @Param("fromDate") LocalDate fromDate,
+                                                     @Param("toDate") LocalDate toDate,
+                                                     Pageable pageable);
+
+    @Query(PATIENT_ROWS + WITH_STATUS + NEWEST_FIRST)
+    List<PatientAppointmentRow> findPatientFirstPageByStatus(@Param("patientId") Long patientId,
+                                                             @Param("status") AppointmentStatus status,
+                                                             @Param("fromDate") LocalDate fromDate,
+                                                             @Param("toDate") LocalDate toDate,
+                                                             Pageable pageable);
+
+    @Query(PATIENT_ROWS + AFTER_CURSOR + NEWEST_FIRST)
+    List<PatientAppointmentRow> findPatientPageAfter(@Param("patientId") Long patientId,
+                                                     @Param("fromDate") LocalDate fromDate,
+                                                     @Param("toDate") LocalDate toDate,
+                                                     @Param("cursorDate") LocalDate cursorDate,
+                                                     @Param("cursorTime") LocalTime cursorTime,
+                                                     @Param("cursorId") Long cursorId,
+                                                     Pageable pageable);
+
+    @Query(PATIENT_ROWS + WITH_STATUS + AFTER_CURSOR + NEWEST_FIRST)
+    List<PatientAppointmentRow> findPatientPageAfterByStatus(@Param("patientId") Long patientId,
+                                                             @Param("status") AppointmentStatus status,
+                                                             @Param("fromDate") LocalDate fromDate,
+                                                             @Param("toDate") LocalDate toDate,
+                                                             @Param("cursorDate") LocalDate cursorDate,
+                                                             @Param("cursorTime") LocalTime cursorTime,
+                                                             @Param("cursorId") Long cursorId,
+                                                             Pageable pageable);
+
+    @Query(DOCTOR_ROWS + NEWEST_FIRST)
+    List<DoctorAppointmentRow> findDoctorFirstPage(@Param("doctorId") Long doctorId,
+                                                   @Param("fromDate") LocalDate fromDate,
+                                                   @Param("toDate") LocalDate toDate,
+                                                   Pageable pageable);
+
+    @Query(DOCTOR_ROWS + WITH_STATUS + NEWEST_FIRST)
+    List<DoctorAppointmentRow> findDoctorFirstPageByStatus(@Param("doctorId") Long doctorId,
+                                                           @Param("status") AppointmentStatus status,
+                                                           @Param("fromDate") LocalDate fromDate,
+                                                           @Param("toDate") LocalDate toDate,
+                                                           Pageable pageable);
+
+    @Query(DOCTOR_ROWS + AFTER_CURSOR + NEWEST_FIRST)
+    List<DoctorAppointmentRow> findDoctorPageAfter(@Param("doctorId") Long doctorId,
+                                                   @Param("fromDate") LocalDate fromDate,
+                                                   @Param("toDate") LocalDate toDate,
+                                                   @Param("cursorDate") LocalDate cursorDate,
+                                                   @Param("cursorTime") LocalTime cursorTime,
+                                                   @Param("cursorId") Long cursorId,
+                                                   Pageable pageable);
+
+    @Query(DOCTOR_ROWS + WITH_STATUS + AFTER_CURSOR + NEWEST_FIRST)
+    List<DoctorAppointmentRow> findDoctorPageAfterByStatus(@Param("doctorId") Long doctorId,
+                                                           @Param("status") AppointmentStatus status,
+                                                           @Param("fromDate") LocalDate fromDate,
+                                                           @Param("toDate") LocalDate toDate,
+                                                           @Param("cursorDate") LocalDate cursorDate,
+                                                           @Param("cursorTime") LocalTime cursorTime,
+                                                           @Param("cursorId") Long cursorId,
+                                                           Pageable pageable);
+    
+    // status, count over the same rows the listings page through
+    @Query("SELECT a.status, COUNT(a) FROM Appointment a WHERE a.patient.id = :patientId " +
+           "AND a.appointmentDate IS NOT NULL AND a.appointmentTime IS NOT NULL GROUP BY a.status")
+    List<Object[]> countByStatusForPatient(@Param("patientId") Long patientId);
+
+    @Query("SELECT a.status, COUNT(a) FROM Appointment a WHERE a.doctor.id = :doctorId " +
+           "AND a.appointmentDate IS NOT NULL AND a.appointmentTime IS NOT NULL GROUP BY a.status")
+    List<Object[]> countByStatusForDoctor(@Param("doctorId") Long doctorId);
+
+    // doctor id, doctor user id of everyone whose listings show this patient
+    @Query("SELECT DISTINCT d.id, d.user.id FROM Appointment a JOIN a.doctor d WHERE a.patient.id = :patientId")
+    List<Object[]> findDoctorKeysForPatient(@Param("patientId") Long patientId);
+
+    // user ids of the patients whose listings show this doctor
+    @Query("SELECT DISTINCT p.user.id FROM Appointment a JOIN a.patient p WHERE a.doctor.id = :doctorId")
+    List<Long> findPatientUserIdsForDoctor(@Param("doctorId") Long doctorId);
+    
     List<Appointment> findByPatientIdAndStatus(Long patientId, AppointmentStatus status);
     
     List<Appointment> findByDoctorIdAndStatus(Long doctorId, AppointmentStatus status);
@@ -26,9 +161,27 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentDate = :date AND a.status != 'CANCELLED'")
     List<Appointment> findDoctorAppointmentsForDate(@Param("doctorId") Long doctorId, @Param("date") LocalDate date);
     
+    // doctor id, date, time, slot minutes of every appointment still holding its slot
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.appointmentTime, a.slotMinutes FROM Appointment a WHERE a.appointmentDate >= :from AND a.status != 'CANCELLED'")
+    List<Object[]> findBookedSlotsFrom(@Param("from") LocalDate from);
+
+    // date, time, slot minutes
+    @Query("SELECT a.appointmentDate, a.appointmentTime, a.slotMinutes FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentDate >= :from AND a.status != 'CANCELLED'")
+    List<Object[]> findBookedSlotsForDoctorFrom(@Param("doctorId") Long doctorId, @Param("from") LocalDate from);
+    
     @Query("SELECT a FROM Appointment a WHERE a.appointmentDate = :date")
     List<Appointment> findByDate(@Param("date") LocalDate date);
     
     @Query("SELECT COUNT(a) FROM Appointment a WHERE a.status = :status")
     Long countByStatus(@Param("status") AppointmentStatus status);
+    
+    @Query("SELECT a.status, COUNT(a) FROM Appointment a GROUP BY a.status")
+    List<Object[]> countGroupedByStatus();
+    
+    @Query("SELECT COALESCE(SUM(a.fee), 0) FROM Appointment a WHERE a.status = 'COMPLETED'")
+    BigDecimal sumCompletedFees();
+    
+    @Query("SELECT CAST(a.createdAt AS LocalDate), COUNT(a) FROM Appointment a WHERE a.createdAt >= :since " +
+           "GROUP BY CAST(a.createdAt AS LocalDate)")
+    List<Object[]> countBookingsPerDaySince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
@@ -1,22 +1,50 @@
 package com.medibook.repository;
 
 import com.medibook.entity.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     
+    // Doctor.user is lazy; every finder whose result is serialized or reads the user joins it up front
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Doctor> findAll();
+    
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Optional<Doctor> findById(Long id);
+    
+    @EntityGraph(attributePaths = "user")
     Optional<Doctor> findByUserId(Long userId);
     
+    @Query("SELECT d.verified, COUNT(d) FROM Doctor d GROUP BY d.verified")
+    List<Object[]> countGroupedByVerified();
+    
+    @Query("SELECT d.id FROM Doctor d WHERE d.user.id = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT d.id FROM Doctor d")
+    List<Long> findAllIds();
+    
+    @EntityGraph(attributePaths = "user")
     List<Doctor> findByVerified(Boolean verified);
     
+    @EntityGraph(attributePaths = "user")
     List<Doctor> findByVerifiedTrue();
     
+    @EntityGraph(attributePaths = "user")
     List<Doctor> findBySpecialization(String specialization);
     
+    @EntityGraph(attributePaths = "user")
     List<Doctor> findBySpecializationAndVerifiedTrue(String specialization);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.medibook.repository;
+
+import com.medibook.entity.DoctorScheduleException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Transactional(readOnly = true)
+public interface DoctorScheduleExceptionRepository extends JpaRepository<DoctorScheduleException, Long> {
+
+    @Query("SELECT e FROM DoctorScheduleException e WHERE e.date BETWEEN :from AND :to")
+    List<DoctorScheduleException> findInRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT e FROM DoctorScheduleException e WHERE e.doctorId = :doctorId AND e.date >= :from ORDER BY e.date")
+    List<DoctorScheduleException> findByDoctorIdFrom(@Param("doctorId") Long doctorId, @Param("from") LocalDate from);
+
+    Optional<DoctorScheduleException> findByDoctorIdAndDate(Long doctorId, LocalDate date);
+}
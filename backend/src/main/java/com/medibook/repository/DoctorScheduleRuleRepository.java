@@ -0,0 +1,23 @@
+package com.medibook.repository;
+
+import com.medibook.entity.DoctorScheduleRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface DoctorScheduleRuleRepository extends JpaRepository<DoctorScheduleRule, Long> {
+
+    List<DoctorScheduleRule> findByDoctorId(Long doctorId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DoctorScheduleRule r WHERE r.doctorId = :doctorId")
+    int deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
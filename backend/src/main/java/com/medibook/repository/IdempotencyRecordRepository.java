@@ -0,0 +1,53 @@
+package com.medibook.repository;
+
+import com.medibook.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+// Claims are plain inserts against the primary key, so of several nodes racing on
+// the same key exactly one wins and the rest get a constraint violation
+@Repository
+@Transactional(readOnly = true)
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (storage_key, request_hash, status, locked_at, expires_at) " +
+                   "VALUES (:key, :hash, 'IN_PROGRESS', :now, :expiresAt)", nativeQuery = true)
+    int insertClaim(@Param("key") String key, @Param("hash") String hash,
+                    @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Takes over a key whose response has expired or whose claim was left behind by a
+    // node that stopped mid-request
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :hash, r.status = 'IN_PROGRESS', r.lockedAt = :now, " +
+           "r.expiresAt = :expiresAt, r.responseStatus = null, r.responseBody = null " +
+           "WHERE r.storageKey = :key AND (r.expiresAt < :now OR (r.status = 'IN_PROGRESS' AND r.lockedAt < :staleBefore))")
+    int reclaim(@Param("key") String key, @Param("hash") String hash, @Param("now") LocalDateTime now,
+                @Param("staleBefore") LocalDateTime staleBefore, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :responseStatus, " +
+           "r.responseBody = :responseBody WHERE r.storageKey = :key AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("key") String key, @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody);
+
+    // Drops a claim whose request failed in a way a retry should run again
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.storageKey = :key AND r.status = 'IN_PROGRESS'")
+    int release(@Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,30 @@
+package com.medibook.repository;
+
+import com.medibook.entity.PaymentEvent;
+import com.medibook.entity.PaymentEventStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
+
+    // SKIP LOCKED (lock timeout -2) lets several nodes drain callbacks without blocking each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM PaymentEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<PaymentEvent> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    boolean existsByEventKey(String eventKey);
+
+    long countByStatus(PaymentEventStatus status);
+}
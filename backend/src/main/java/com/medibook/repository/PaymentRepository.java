@@ -0,0 +1,87 @@
+package com.medibook.repository;
+
+import com.medibook.entity.Payment;
+import com.medibook.entity.PaymentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Every status change is a conditional update on the current status, so a payment is
+// authorized, captured or refunded once however many callbacks, browser verifications
+// and reconciler nodes race on it
+@Repository
+@Transactional(readOnly = true)
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    Optional<Payment> findByOrderId(String orderId);
+
+    List<Payment> findByOrderIdIn(Collection<String> orderIds);
+
+    @Query("SELECT p FROM Payment p WHERE p.appointment.id = :appointmentId ORDER BY p.id DESC")
+    List<Payment> findByAppointmentId(@Param("appointmentId") Long appointmentId);
+
+    @Query("SELECT p FROM Payment p WHERE p.appointment.id = :appointmentId " +
+           "AND p.status IN ('CREATED', 'AUTHORIZED', 'CAPTURED') ORDER BY p.id DESC")
+    List<Payment> findOpenByAppointmentId(@Param("appointmentId") Long appointmentId);
+
+    // Authorized payments nobody is capturing, or whose capture claim has gone stale
+    @Query("SELECT p FROM Payment p WHERE p.status = 'AUTHORIZED' " +
+           "AND (p.captureClaimedAt IS NULL OR p.captureClaimedAt < :staleBefore) ORDER BY p.id")
+    List<Payment> findCapturable(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    // A declined attempt fails the order, but the gateway lets the patient try again on the
+    // same order, so a later success still moves it on as long as no payment was bound to it
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status, p.gatewayPaymentId = :gatewayPaymentId, " +
+           "p.authorizedAt = :now, p.updatedAt = :now, p.lastError = NULL " +
+           "WHERE p.id = :id AND (p.status = 'CREATED' OR (p.status = 'FAILED' AND p.gatewayPaymentId IS NULL))")
+    int markAuthorized(@Param("id") Long id, @Param("gatewayPaymentId") String gatewayPaymentId,
+                       @Param("now") LocalDateTime now, @Param("status") PaymentStatus status);
+
+    // A capture notice for a payment we never saw authorized still captures it, but only
+    // for the gateway payment the order is bound to
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status, p.gatewayPaymentId = :gatewayPaymentId, " +
+           "p.capturedAt = :now, p.updatedAt = :now, p.lastError = NULL " +
+           "WHERE p.id = :id AND (p.status IN ('CREATED', 'AUTHORIZED') OR (p.status = 'FAILED' AND p.gatewayPaymentId IS NULL)) " +
+           "AND (p.gatewayPaymentId IS NULL OR p.gatewayPaymentId = :gatewayPaymentId)")
+    int markCaptured(@Param("id") Long id, @Param("gatewayPaymentId") String gatewayPaymentId,
+                     @Param("now") LocalDateTime now, @Param("status") PaymentStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status, p.lastError = :reason, p.updatedAt = :now " +
+           "WHERE p.id = :id AND p.status IN ('CREATED', 'AUTHORIZED') " +
+           "AND (p.gatewayPaymentId IS NULL OR p.gatewayPaymentId = :gatewayPaymentId)")
+    int markFailed(@Param("id") Long id, @Param("gatewayPaymentId") String gatewayPaymentId, @Param("reason") String reason,
+                   @Param("now") LocalDateTime now, @Param("status") PaymentStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status, p.updatedAt = :now WHERE p.id = :id AND p.status = 'CAPTURED'")
+    int markRefunded(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("status") PaymentStatus status);
+
+    // Only the worker whose update lands here calls the gateway's capture
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.captureClaimedAt = :now, p.captureAttempts = p.captureAttempts + 1 " +
+           "WHERE p.id = :id AND p.status = 'AUTHORIZED' " +
+           "AND (p.captureClaimedAt IS NULL OR p.captureClaimedAt < :staleBefore)")
+    int claimCapture(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Payment p SET p.lastError = :error, p.updatedAt = :now WHERE p.id = :id")
+    int recordError(@Param("id") Long id, @Param("error") String error, @Param("now") LocalDateTime now);
+}
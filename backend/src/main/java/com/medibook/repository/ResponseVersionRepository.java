@@ -0,0 +1,29 @@
+package com.medibook.repository;
+
+import com.medibook.entity.ResponseVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ResponseVersionRepository extends JpaRepository<ResponseVersion, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ResponseVersion v SET v.counter = v.counter + 1, v.changedAt = :now WHERE v.key = :key")
+    int increment(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    // First bump of a key; when another node creates the row at the same time this is a no-op
+    // instead of a constraint violation that would abort the caller's transaction
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO response_versions (version_key, counter, changed_at) VALUES (:key, 0, :now) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,30 @@
+package com.medibook.repository;
+
+import com.medibook.entity.RevokedSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface RevokedSessionRepository extends JpaRepository<RevokedSession, Long> {
+
+    boolean existsBySessionId(String sessionId);
+
+    @Query("SELECT r FROM RevokedSession r WHERE r.expiresAt > :now")
+    List<RevokedSession> findUnexpired(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r FROM RevokedSession r WHERE r.revokedAt >= :since")
+    List<RevokedSession> findRevokedSince(@Param("since") LocalDateTime since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedSession r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,100 @@
+package com.medibook.repository;
+
+import com.medibook.entity.WaitlistEntry;
+import com.medibook.entity.WaitlistStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+// Status changes are conditional updates so an offer is accepted, declined or
+// expired exactly once even when those race each other or run on several nodes
+@Repository
+@Transactional(readOnly = true)
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    @EntityGraph(attributePaths = {"patient.user", "doctor.user"})
+    Optional<WaitlistEntry> findWithParticipantsById(Long id);
+
+    @EntityGraph(attributePaths = "doctor.user")
+    @Query("SELECT e FROM WaitlistEntry e WHERE e.patient.id = :patientId AND e.status IN ('WAITING', 'OFFERED') ORDER BY e.requestedDate, e.id")
+    List<WaitlistEntry> findActiveByPatientId(@Param("patientId") Long patientId);
+
+    @Query("SELECT COUNT(e) > 0 FROM WaitlistEntry e WHERE e.patient.id = :patientId AND e.doctor.id = :doctorId " +
+           "AND e.requestedDate = :date AND e.status IN ('WAITING', 'OFFERED')")
+    boolean existsActive(@Param("patientId") Long patientId, @Param("doctorId") Long doctorId, @Param("date") LocalDate date);
+
+    @Query("SELECT COUNT(e) > 0 FROM WaitlistEntry e WHERE e.doctor.id = :doctorId AND e.requestedDate = :date " +
+           "AND e.status = 'WAITING' AND (e.earliestTime IS NULL OR e.earliestTime <= :time) " +
+           "AND (e.latestTime IS NULL OR e.latestTime >= :time)")
+    boolean existsWaitingFor(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("time") LocalTime time);
+
+    // Oldest waiting entry whose window fits the time. SKIP LOCKED (lock timeout -2) keeps
+    // nodes offering slots for the same day from picking the same patient; call in a transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM WaitlistEntry e WHERE e.doctor.id = :doctorId AND e.requestedDate = :date " +
+           "AND e.status = 'WAITING' AND (e.earliestTime IS NULL OR e.earliestTime <= :time) " +
+           "AND (e.latestTime IS NULL OR e.latestTime >= :time) ORDER BY e.id")
+    List<WaitlistEntry> findNextWaitingForUpdate(@Param("doctorId") Long doctorId, @Param("date") LocalDate date,
+                                                 @Param("time") LocalTime time, Pageable pageable);
+
+    // doctor id, date, offered time of offers whose hold is still running
+    @Query("SELECT e.doctor.id, e.requestedDate, e.offeredTime FROM WaitlistEntry e WHERE e.status = 'OFFERED' AND e.offerExpiresAt > :now")
+    List<Object[]> findHeldSlots(@Param("now") LocalDateTime now);
+
+    // doctor id, date, offered time of every open offer, including lapsed ones not yet passed on
+    @Query("SELECT e.doctor.id, e.requestedDate, e.offeredTime FROM WaitlistEntry e WHERE e.status = 'OFFERED' AND e.requestedDate >= :from")
+    List<Object[]> findOfferedSlotsFrom(@Param("from") LocalDate from);
+
+    // id, doctor id, date, offered time of offers whose hold ran out
+    @Query("SELECT e.id, e.doctor.id, e.requestedDate, e.offeredTime FROM WaitlistEntry e WHERE e.status = 'OFFERED' AND e.offerExpiresAt <= :now")
+    List<Object[]> findExpiredOffers(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.status = :status, e.offeredTime = :time, e.offerExpiresAt = :expiresAt " +
+           "WHERE e.id = :id AND e.status = 'WAITING'")
+    int markOffered(@Param("id") Long id, @Param("time") LocalTime time, @Param("expiresAt") LocalDateTime expiresAt,
+                    @Param("status") WaitlistStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.status = :status WHERE e.id = :id AND e.status = 'OFFERED' AND e.offerExpiresAt > :now")
+    int markAccepted(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("status") WaitlistStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.status = :status WHERE e.id = :id AND e.status = 'OFFERED' AND e.offerExpiresAt <= :now")
+    int markExpired(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("status") WaitlistStatus status);
+
+    // Moves an entry out of one status; used for decline, leave and putting an offer back in line
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.status = :to, e.offeredTime = NULL, e.offerExpiresAt = NULL WHERE e.id = :id AND e.status = :from")
+    int transition(@Param("id") Long id, @Param("from") WaitlistStatus from, @Param("to") WaitlistStatus to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.appointmentId = :appointmentId WHERE e.id = :id")
+    int linkAppointment(@Param("id") Long id, @Param("appointmentId") Long appointmentId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaitlistEntry e SET e.status = :status WHERE e.status = 'WAITING' AND e.requestedDate < :date")
+    int expireWaitingBefore(@Param("date") LocalDate date, @Param("status") WaitlistStatus status);
+}
@@ -0,0 +1,64 @@
+package com.medibook.security;
+
+import com.medibook.service.CachedUserDetailsService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Bearer token -> Authentication for the JWT filters. Session tokens are trusted on their
+// claims once TokenRevocationList clears the session, with no user lookup; tokens issued
+// before sessions existed still go through the user details cache until they expire.
+@Component
+public class JwtAuthenticator {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private CachedUserDetailsService userDetailsService;
+
+    // null when the token is invalid, expired or revoked
+    public UsernamePasswordAuthenticationToken authenticate(String token, HttpServletRequest request) {
+        Claims claims;
+        try {
+            claims = jwtUtil.extractClaims(token);
+        } catch (Exception e) {
+            return null;
+        }
+        String email = claims.getSubject();
+        String sessionId = claims.get(JwtUtil.SESSION_CLAIM, String.class);
+        UserDetails principal;
+        if (sessionId != null) {
+            if (revocationList.isRevoked(sessionId)) {
+                return null;
+            }
+            String role = claims.get("role", String.class);
+            principal = new User(email, "", role == null ? List.of() : List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        } else {
+            try {
+                principal = userDetailsService.loadUserByUsername(email);
+            } catch (UsernameNotFoundException e) {
+                return null;
+            }
+            if (!principal.isEnabled()) {
+                return null;
+            }
+        }
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        return authToken;
+    }
+}
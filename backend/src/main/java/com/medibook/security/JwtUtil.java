@@ -1,14 +1,27 @@
 package com.medibook.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -16,11 +29,71 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secret;
     
-    @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
+    // Claim naming the login session an access token belongs to, see TokenRevocationList
+    public static final String SESSION_CLAIM = "sid";
+    
+    // Access tokens are short-lived; clients renew them with a refresh token
+    @Value("${jwt.access-expiration:900000}") // 15 minutes in milliseconds
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+    
+    private SecretKey signingKey;
+    
+    private JwtParser parser;
+    
+    // Claims of tokens whose signature already checked out, keyed by SHA-256 of the
+    // token and kept until the token itself expires
+    private Cache<String, Claims> verifiedTokens;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // jwt.verify by outcome: cached (hash lookup hit), verified (signature checked), rejected
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        cachedTimer = verifyTimer("cached");
+        verifiedTimer = verifyTimer("verified");
+        rejectedTimer = verifyTimer("rejected");
+    }
+    
+    private Timer verifyTimer(String outcome) {
+        return Timer.builder("jwt.verify")
+                .description("Time to resolve the claims of a bearer token")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(50))
+                .register(meterRegistry);
     }
     
     public String generateToken(String email, String role) {
@@ -29,13 +102,24 @@ public class JwtUtil {
         return createToken(claims, email);
     }
     
+    public String generateAccessToken(String email, String role, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        claims.put(SESSION_CLAIM, sessionId);
+        return createToken(claims, email);
+    }
+    
+    public long getAccessExpirationMs() {
+        return expiration;
+    }
+    
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
@@ -51,12 +135,27 @@ public class JwtUtil {
         return extractClaims(token).getExpiration();
     }
     
-    private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Verifies the signature once per token; repeat calls are a hash lookup
+    public Claims extractClaims(String token) {
+        long start = System.nanoTime();
+        String key = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (RuntimeException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(key, claims);
+        }
+        verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
     }
     
     public Boolean isTokenExpired(String token) {
@@ -64,7 +163,16 @@ public class JwtUtil {
     }
     
     public Boolean validateToken(String token, String email) {
-        final String extractedEmail = extractEmail(token);
-        return (extractedEmail.equals(email) && !isTokenExpired(token));
+        final Claims claims = extractClaims(token);
+        return (claims.getSubject().equals(email) && !claims.getExpiration().before(new Date()));
+    }
+    
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
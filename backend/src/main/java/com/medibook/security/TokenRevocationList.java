@@ -0,0 +1,144 @@
+package com.medibook.security;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.RevokedSession;
+import com.medibook.repository.RevokedSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Revoked sessions, checked on every authenticated request. A Bloom filter answers the
+// usual "not revoked" without touching anything else; only its rare positives are looked
+// up in the exact map. Both live in memory and are refilled from revoked_sessions, so a
+// revocation made on one node reaches the others within a sync interval.
+@Component
+public class TokenRevocationList {
+
+    @Autowired
+    private RevokedSessionRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.access-expiration:900000}")
+    private long accessExpirationMs;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Re-reads this much history on every sync, to cover clock skew between nodes and
+    // revocations that committed after a later one was already seen
+    @Value("${jwt.revocation.sync-overlap-ms:30000}")
+    private long syncOverlapMs;
+
+    // Session id -> epoch millis after which none of its access tokens can still be valid
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private LocalDateTime lastSync;
+
+    private Counter filteredCounter;
+    private Counter falsePositiveCounter;
+    private Counter revokedCounter;
+
+    @PostConstruct
+    public void init() {
+        filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        Gauge.builder("jwt.revocation.entries", revoked, Map::size)
+                .description("Revoked sessions held in memory")
+                .register(meterRegistry);
+        filteredCounter = lookupCounter("filtered");
+        falsePositiveCounter = lookupCounter("false-positive");
+        revokedCounter = lookupCounter("revoked");
+        sync();
+    }
+
+    private Counter lookupCounter(String outcome) {
+        return Counter.builder("jwt.revocation.lookups")
+                .description("Revocation checks by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String sessionId) {
+        if (!filter.mightContain(sessionId)) {
+            filteredCounter.increment();
+            return false;
+        }
+        if (revoked.containsKey(sessionId)) {
+            revokedCounter.increment();
+            return true;
+        }
+        falsePositiveCounter.increment();
+        return false;
+    }
+
+    public void revoke(Collection<String> sessionIds) {
+        LocalDateTime now = LocalDateTime.now();
+        // One extra minute for tokens checked by a node whose clock runs behind
+        LocalDateTime expiresAt = now.plusNanos(accessExpirationMs * 1_000_000).plusMinutes(1);
+        for (String sessionId : sessionIds) {
+            remember(sessionId, expiresAt);
+            if (repository.existsBySessionId(sessionId)) {
+                continue;
+            }
+            RevokedSession row = new RevokedSession();
+            row.setSessionId(sessionId);
+            row.setRevokedAt(now);
+            row.setExpiresAt(expiresAt);
+            try {
+                repository.save(row);
+            } catch (DataIntegrityViolationException e) {
+                // Revoked concurrently elsewhere
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:2000}", initialDelayString = "${jwt.revocation.sync-interval-ms:2000}")
+    public synchronized void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<RevokedSession> rows = ReplicaRoutingDataSource.onPrimary(() -> lastSync == null
+                ? repository.findUnexpired(startedAt)
+                : repository.findRevokedSince(lastSync.minusNanos(syncOverlapMs * 1_000_000)));
+        for (RevokedSession row : rows) {
+            remember(row.getSessionId(), row.getExpiresAt());
+        }
+        lastSync = startedAt;
+    }
+
+    private synchronized void remember(String sessionId, LocalDateTime expiresAt) {
+        revoked.put(sessionId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        filter.add(sessionId);
+    }
+
+    // Drops sessions whose tokens have all expired and rebuilds the filter without them,
+    // so its false positive rate stays where it was sized
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:300000}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (revoked.values().removeIf(until -> until < now)) {
+                BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+                revoked.keySet().forEach(rebuilt::add);
+                filter = rebuilt;
+            }
+        }
+        repository.deleteExpired(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,151 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.AppointmentStatus;
+import com.medibook.repository.AppointmentRepository;
+import com.medibook.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters for the admin dashboard, bumped on every state transition and
+// periodically overwritten from the database to correct any drift
+@Service
+public class AdminStatsService {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Value("${stats.bookings-per-day.days:30}")
+    private int bookingDays;
+
+    private final AtomicLong verifiedDoctors = new AtomicLong();
+    private final AtomicLong pendingDoctors = new AtomicLong();
+    private final AtomicLong[] appointmentsByStatus = new AtomicLong[AppointmentStatus.values().length];
+    // Fees of completed appointments, in hundredths
+    private final AtomicLong revenueCents = new AtomicLong();
+    private final Map<LocalDate, AtomicLong> bookingsPerDay = new ConcurrentSkipListMap<>();
+    private volatile LocalDateTime lastReconciledAt;
+
+    public AdminStatsService() {
+        for (int i = 0; i < appointmentsByStatus.length; i++) {
+            appointmentsByStatus[i] = new AtomicLong();
+        }
+    }
+
+    public void onDoctorRegistered() {
+        pendingDoctors.incrementAndGet();
+    }
+
+    public void onDoctorVerified() {
+        pendingDoctors.decrementAndGet();
+        verifiedDoctors.incrementAndGet();
+    }
+
+    public void onAppointmentBooked(AppointmentStatus status, LocalDate bookedOn) {
+        appointmentsByStatus[status.ordinal()].incrementAndGet();
+        bookingsPerDay.computeIfAbsent(bookedOn, day -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void onAppointmentStatusChanged(AppointmentStatus from, AppointmentStatus to, BigDecimal fee) {
+        if (from == to) {
+            return;
+        }
+        appointmentsByStatus[from.ordinal()].decrementAndGet();
+        appointmentsByStatus[to.ordinal()].incrementAndGet();
+        if (fee != null && (from == AppointmentStatus.COMPLETED || to == AppointmentStatus.COMPLETED)) {
+            long cents = toCents(fee);
+            revenueCents.addAndGet(to == AppointmentStatus.COMPLETED ? cents : -cents);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stats.reconcile-interval-ms:600000}",
+               fixedDelayString = "${stats.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        // Counters are rebuilt from the primary; a lagging replica would undo recent updates
+        ReplicaRoutingDataSource.runOnPrimary(this::reloadCounters);
+    }
+
+    private void reloadCounters() {
+        long verified = 0;
+        long pending = 0;
+        for (Object[] row : doctorRepository.countGroupedByVerified()) {
+            if (Boolean.TRUE.equals(row[0])) {
+                verified += (Long) row[1];
+            } else {
+                pending += (Long) row[1];
+            }
+        }
+        verifiedDoctors.set(verified);
+        pendingDoctors.set(pending);
+
+        long[] byStatus = new long[appointmentsByStatus.length];
+        for (Object[] row : appointmentRepository.countGroupedByStatus()) {
+            byStatus[((AppointmentStatus) row[0]).ordinal()] = (Long) row[1];
+        }
+        for (int i = 0; i < byStatus.length; i++) {
+            appointmentsByStatus[i].set(byStatus[i]);
+        }
+
+        revenueCents.set(toCents(appointmentRepository.sumCompletedFees()));
+
+        LocalDate since = LocalDate.now().minusDays(bookingDays - 1L);
+        Map<LocalDate, Long> perDay = new HashMap<>();
+        for (Object[] row : appointmentRepository.countBookingsPerDaySince(since.atStartOfDay())) {
+            perDay.put((LocalDate) row[0], (Long) row[1]);
+        }
+        bookingsPerDay.keySet().removeIf(day -> day.isBefore(since) || !perDay.containsKey(day));
+        perDay.forEach((day, count) -> bookingsPerDay.computeIfAbsent(day, d -> new AtomicLong()).set(count));
+
+        lastReconciledAt = LocalDateTime.now();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> byStatus = new LinkedHashMap<>();
+        long totalAppointments = 0;
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            long count = appointmentsByStatus[status.ordinal()].get();
+            byStatus.put(status.name(), count);
+            totalAppointments += count;
+        }
+
+        LocalDate since = LocalDate.now().minusDays(bookingDays - 1L);
+        Map<String, Object> perDay = new LinkedHashMap<>();
+        bookingsPerDay.forEach((day, count) -> {
+            if (!day.isBefore(since)) {
+                perDay.put(day.toString(), count.get());
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalDoctors", verifiedDoctors.get() + pendingDoctors.get());
+        stats.put("verifiedDoctors", verifiedDoctors.get());
+        stats.put("pendingDoctors", pendingDoctors.get());
+        stats.put("totalAppointments", totalAppointments);
+        stats.put("appointmentsByStatus", byStatus);
+        stats.put("revenue", BigDecimal.valueOf(revenueCents.get(), 2));
+        stats.put("bookingsPerDay", perDay);
+        stats.put("lastReconciledAt", lastReconciledAt != null ? lastReconciledAt.toString() : null);
+        return stats;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+}
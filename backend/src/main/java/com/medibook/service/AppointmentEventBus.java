@@ -0,0 +1,266 @@
+package com.medibook.service;
+
+import com.medibook.dto.AppointmentEvent;
+import com.medibook.entity.Appointment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// In-process bus that pushes committed appointment changes to the SSE streams of the
+// doctor and patient involved. Each subscriber has a bounded buffer drained by a small
+// sender pool, so a slow client never blocks the request that made the change; when a
+// buffer overflows the backlog is dropped and the client is told to reload instead.
+// Recent events are kept so a reconnecting client resumes from its Last-Event-ID.
+// With the Redis tier enabled, RedisConfig relays every change to the other nodes, so a
+// stream sees changes made on any node; without it, only those made on its own node.
+@Component
+public class AppointmentEventBus {
+
+    public static final String EVENT_NAME = "appointment";
+    public static final String RESET_EVENT_NAME = "reset";
+
+    private static final AppointmentEvent HEARTBEAT = new AppointmentEvent(
+            null, null, null, null, null, null, null, null, null, null, -1);
+
+    @Value("${appointments.events.replay-size:1000}")
+    private int replaySize;
+
+    @Value("${appointments.events.subscriber-buffer:256}")
+    private int bufferSize;
+
+    @Value("${appointments.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${appointments.events.sender-threads:4}")
+    private int senderThreads;
+
+    // Event ids are "<boot>-<sequence>" so ids from before a restart are recognized as unresumable
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+
+    // Tells this node's own relayed changes apart from other nodes'
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Guarded by this: sequence, replay window and the subscriber lists
+    private long sequence;
+    private final ArrayDeque<AppointmentEvent> recent = new ArrayDeque<>();
+    private final Map<String, List<Subscriber>> subscribers = new HashMap<>();
+
+    private ExecutorService senders;
+
+    // Forwards changes made here to the other nodes; set by RedisConfig when Redis is enabled
+    private volatile Consumer<AppointmentEvent> relay;
+
+    @PostConstruct
+    public void init() {
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    public void publish(String type, Appointment apt) {
+        AppointmentEvent change = new AppointmentEvent(null, type, apt.getId(), apt.getDoctor().getId(),
+                apt.getPatient().getId(), apt.getStatus(), apt.getAppointmentDate(), apt.getAppointmentTime(),
+                apt.getPrescription(), LocalDateTime.now(), 0);
+        dispatch(change);
+        Consumer<AppointmentEvent> forward = relay;
+        if (forward != null) {
+            forward.accept(change);
+        }
+    }
+
+    // Hands a change made here or relayed from another node to this node's streams; the
+    // event id and sequence are this node's, so Last-Event-ID resumes against its own window
+    public synchronized void dispatch(AppointmentEvent change) {
+        long id = ++sequence;
+        AppointmentEvent event = new AppointmentEvent(boot + "-" + id, change.type(), change.appointmentId(),
+                change.doctorId(), change.patientId(), change.status(), change.appointmentDate(),
+                change.appointmentTime(), change.prescription(), change.occurredAt(), id);
+        recent.addLast(event);
+        while (recent.size() > replaySize) {
+            recent.removeFirst();
+        }
+        deliver(doctorTopic(event.doctorId()), event);
+        deliver(patientTopic(event.patientId()), event);
+    }
+
+    public void setRelay(Consumer<AppointmentEvent> relay) {
+        this.relay = relay;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public SseEmitter subscribeDoctor(Long doctorId, String lastEventId) {
+        return subscribe(doctorTopic(doctorId), lastEventId);
+    }
+
+    public SseEmitter subscribePatient(Long patientId, String lastEventId) {
+        return subscribe(patientTopic(patientId), lastEventId);
+    }
+
+    // Comment lines keep idle connections open through proxies and surface dead clients
+    @Scheduled(fixedDelayString = "${appointments.events.heartbeat-ms:20000}")
+    public void heartbeat() {
+        List<Subscriber> all = new ArrayList<>();
+        synchronized (this) {
+            subscribers.values().forEach(all::addAll);
+        }
+        for (Subscriber subscriber : all) {
+            if (subscriber.queue.isEmpty()) {
+                subscriber.enqueue(HEARTBEAT);
+            }
+        }
+    }
+
+    public synchronized int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    private SseEmitter subscribe(String topic, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(topic, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        synchronized (this) {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                long after = resumePoint(lastEventId);
+                if (after < 0) {
+                    subscriber.resetPending.set(true);
+                } else {
+                    for (AppointmentEvent event : recent) {
+                        if (event.sequence() > after && matches(topic, event)) {
+                            subscriber.enqueue(event);
+                        }
+                    }
+                }
+            }
+            subscribers.computeIfAbsent(topic, key -> new ArrayList<>()).add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    // Sequence to replay after, or -1 if the events since then are no longer retained
+    private long resumePoint(String lastEventId) {
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(boot)) {
+            return -1;
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        long oldest = recent.isEmpty() ? sequence + 1 : recent.peekFirst().sequence();
+        return after > sequence || after < oldest - 1 ? -1 : after;
+    }
+
+    private void deliver(String topic, AppointmentEvent event) {
+        List<Subscriber> list = subscribers.get(topic);
+        if (list != null) {
+            for (Subscriber subscriber : list) {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    private synchronized void remove(Subscriber subscriber) {
+        List<Subscriber> list = subscribers.get(subscriber.topic);
+        if (list != null && list.remove(subscriber) && list.isEmpty()) {
+            subscribers.remove(subscriber.topic);
+        }
+    }
+
+    private static boolean matches(String topic, AppointmentEvent event) {
+        return topic.equals(doctorTopic(event.doctorId())) || topic.equals(patientTopic(event.patientId()));
+    }
+
+    private static String doctorTopic(Long doctorId) {
+        return "doctor:" + doctorId;
+    }
+
+    private static String patientTopic(Long patientId) {
+        return "patient:" + patientId;
+    }
+
+    private class Subscriber {
+        final String topic;
+        final SseEmitter emitter;
+        final BlockingQueue<AppointmentEvent> queue;
+        final AtomicBoolean resetPending = new AtomicBoolean();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(String topic, SseEmitter emitter, BlockingQueue<AppointmentEvent> queue) {
+            this.topic = topic;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void enqueue(AppointmentEvent event) {
+            if (!queue.offer(event)) {
+                // Too far behind: drop the backlog, the client reloads its list instead
+                queue.clear();
+                resetPending.set(true);
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if ((!queue.isEmpty() || resetPending.get()) && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        // At most one drain per subscriber runs at a time, keeping events in order
+        private void drain() {
+            try {
+                if (resetPending.getAndSet(false)) {
+                    emitter.send(SseEmitter.event().name(RESET_EVENT_NAME).data("{}", MediaType.APPLICATION_JSON));
+                }
+                AppointmentEvent event;
+                while ((event = queue.poll()) != null) {
+                    if (event == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    } else {
+                        emitter.send(SseEmitter.event().id(event.eventId()).name(EVENT_NAME)
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                queue.clear();
+                remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            schedule();
+        }
+    }
+}
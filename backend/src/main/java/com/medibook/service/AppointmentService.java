@@ -1,13 +1,29 @@
 package com.medibook.service;
 
+import com.medibook.dto.AppointmentCursor;
+import com.medibook.dto.AppointmentPage;
+import com.medibook.dto.DoctorAppointmentRow;
+import com.medibook.dto.PatientAppointmentRow;
 import com.medibook.entity.*;
 import com.medibook.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Service
 public class AppointmentService {
@@ -21,6 +37,339 @@ public class AppointmentService {
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private DoctorBookingLocks bookingLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private AdminStatsService statsService;
+
+    @Autowired
+    @Lazy
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private AppointmentEventBus eventBus;
+
+    @Autowired
+    private ResponseVersions responseVersions;
+
+    // Date range the listings use when the caller does not filter by date
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
+    @Value("${appointments.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${appointments.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${appointments.bulk.max-size:200}")
+    private int maxBulkSize;
+
+    // Bookings for the same doctor are serialized in-process by the doctor's lock stripe;
+    // the unique slot constraint on appointments keeps other nodes honest.
+    public Appointment bookAppointment(Long userId, Long doctorId, LocalDate date, LocalTime time,
+                                       String reason, String notes) {
+        if (date == null || time == null) {
+            throw new RuntimeException("Appointment date and time are required");
+        }
+
+        Patient patient = patientRepository.findByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Patient profile not found for user ID: " + userId));
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found: " + doctorId));
+
+        Appointment apt = newAppointment(patient, doctor, date, time, reason, notes);
+
+        ReentrantLock lock = bookingLocks.forDoctor(doctorId);
+        lock.lock();
+        try {
+            if (!availabilityService.reserve(doctorId, date, time)) {
+                throw new RuntimeException("Selected slot is already booked");
+            }
+            try {
+                return transactionTemplate.execute(status -> persistBooking(apt, patient, doctor));
+            } catch (DataIntegrityViolationException e) {
+                // Another node claimed the slot first; keep it marked as taken here too
+                throw new RuntimeException("Selected slot is already booked");
+            } catch (RuntimeException e) {
+                availabilityService.release(doctorId, date, time);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Books a slot the caller already holds in the availability calendar (waitlist offers),
+    // inside the caller's transaction
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Appointment bookHeldSlot(Long patientId, Long doctorId, LocalDate date, LocalTime time, String reason) {
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new RuntimeException("Patient not found: " + patientId));
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found: " + doctorId));
+        return persistBooking(newAppointment(patient, doctor, date, time, reason, ""), patient, doctor);
+    }
+
+    private Appointment newAppointment(Patient patient, Doctor doctor, LocalDate date, LocalTime time,
+                                       String reason, String notes) {
+        Appointment apt = new Appointment();
+        apt.setPatient(patient);
+        apt.setDoctor(doctor);
+        apt.setAppointmentDate(date);
+        apt.setAppointmentTime(time);
+        apt.setSlotMinutes(availabilityService.slotMinutesOn(doctor.getId(), date));
+        apt.setReason(reason);
+        apt.setNotes(notes);
+        apt.setFee(doctor.getConsultationFee());
+        apt.setStatus(AppointmentStatus.PENDING);
+        return apt;
+    }
+
+    private Appointment persistBooking(Appointment apt, Patient patient, Doctor doctor) {
+        Appointment saved = appointmentRepository.saveAndFlush(apt);
+        afterCommit(() -> statsService.onAppointmentBooked(saved.getStatus(), saved.getCreatedAt().toLocalDate()));
+        changed("CREATED", saved);
+        emailService.sendAppointmentBooked(
+                patient.getUser().getEmail(),
+                patient.getUser().getName(),
+                doctor.getUser().getName(),
+                String.valueOf(apt.getAppointmentDate()),
+                String.valueOf(apt.getAppointmentTime())
+        );
+        return saved;
+    }
+
+    @Transactional
+    public Appointment confirmAppointment(Long id) {
+        Appointment apt = appointmentRepository.findWithParticipantsById(id)
+                .orElseThrow(() -> new RuntimeException("Appointment not found"));
+        AppointmentStatus previous = apt.getStatus();
+        apt.setStatus(AppointmentStatus.CONFIRMED);
+        appointmentRepository.save(apt);
+        afterCommit(() -> statsService.onAppointmentStatusChanged(previous, AppointmentStatus.CONFIRMED, apt.getFee()));
+        changed(AppointmentStatus.CONFIRMED.name(), apt);
+
+        emailService.sendAppointmentConfirmed(
+                apt.getPatient().getUser().getEmail(),
+                apt.getPatient().getUser().getName(),
+                apt.getDoctor().getUser().getName(),
+                String.valueOf(apt.getAppointmentDate()),
+                String.valueOf(apt.getAppointmentTime())
+        );
+        return apt;
+    }
+
+    @Transactional
+    public Appointment cancelAppointment(Long id) {
+        Appointment apt = appointmentRepository.findWithParticipantsById(id)
+                .orElseThrow(() -> new RuntimeException("Appointment not found"));
+        AppointmentStatus previous = apt.getStatus();
+        boolean wasActive = previous != AppointmentStatus.CANCELLED;
+        apt.setStatus(AppointmentStatus.CANCELLED);
+        appointmentRepository.save(apt);
+        afterCommit(() -> statsService.onAppointmentStatusChanged(previous, AppointmentStatus.CANCELLED, apt.getFee()));
+        changed(AppointmentStatus.CANCELLED.name(), apt);
+
+        if (wasActive) {
+            Long doctorId = apt.getDoctor().getId();
+            afterCommit(() -> releaseSlot(doctorId, apt.getAppointmentDate(), apt.getAppointmentTime()));
+        }
+
+        emailService.sendAppointmentCancelled(
+                apt.getPatient().getUser().getEmail(),
+                apt.getPatient().getUser().getName(),
+                apt.getDoctor().getUser().getName(),
+                String.valueOf(apt.getAppointmentDate())
+        );
+        return apt;
+    }
+
+    @Transactional
+    public Appointment completeAppointment(Long id, String prescription) {
+        Appointment apt = appointmentRepository.findWithParticipantsById(id)
+                .orElseThrow(() -> new RuntimeException("Appointment not found"));
+        AppointmentStatus previous = apt.getStatus();
+        apt.setStatus(AppointmentStatus.COMPLETED);
+        if (prescription != null) {
+            apt.setPrescription(prescription);
+        }
+        appointmentRepository.save(apt);
+        afterCommit(() -> statsService.onAppointmentStatusChanged(previous, AppointmentStatus.COMPLETED, apt.getFee()));
+        changed(AppointmentStatus.COMPLETED.name(), apt);
+
+        Long doctorId = apt.getDoctor().getId();
+        afterCommit(() -> availabilityService.markBooked(doctorId, apt.getAppointmentDate(), apt.getAppointmentTime()));
+
+        emailService.sendAppointmentCompleted(
+                apt.getPatient().getUser().getEmail(),
+                apt.getPatient().getUser().getName(),
+                apt.getDoctor().getUser().getName(),
+                prescription
+        );
+        return apt;
+    }
+
+    // Applies one transition to many appointments in a single transaction: rows are
+    // locked and loaded with two queries, the status changes go out as one JDBC batch
+    // at flush and the emails are queued in the outbox. Results follow the request order.
+    @Transactional
+    public List<Map<String, Object>> bulkTransition(List<Long> ids, AppointmentStatus target) {
+        if (target != AppointmentStatus.CONFIRMED && target != AppointmentStatus.CANCELLED) {
+            throw new IllegalArgumentException("Bulk transition to " + target + " is not supported");
+        }
+        if (ids.size() > maxBulkSize) {
+            throw new IllegalArgumentException("At most " + maxBulkSize + " appointments per request");
+        }
+
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        appointmentRepository.lockAllByIdIn(unique);
+        Map<Long, Appointment> byId = new HashMap<>();
+        for (Appointment apt : appointmentRepository.findAllWithParticipantsByIdIn(unique)) {
+            byId.put(apt.getId(), apt);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(unique.size());
+        for (Long id : unique) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            results.add(result);
+
+            Appointment apt = byId.get(id);
+            if (apt == null) {
+                result.put("result", "NOT_FOUND");
+                continue;
+            }
+            AppointmentStatus previous = apt.getStatus();
+            result.put("status", previous);
+            if (previous == target) {
+                result.put("result", "UNCHANGED");
+                continue;
+            }
+            boolean allowed = previous == AppointmentStatus.PENDING
+                    || (target == AppointmentStatus.CANCELLED && previous == AppointmentStatus.CONFIRMED);
+            if (!allowed) {
+                result.put("result", "INVALID_TRANSITION");
+                continue;
+            }
+
+            apt.setStatus(target);
+            result.put("status", target);
+            result.put("result", "UPDATED");
+            afterCommit(() -> statsService.onAppointmentStatusChanged(previous, target, apt.getFee()));
+            changed(target.name(), apt);
+
+            User patientUser = apt.getPatient().getUser();
+            String doctorName = apt.getDoctor().getUser().getName();
+            if (target == AppointmentStatus.CONFIRMED) {
+                emailService.sendAppointmentConfirmed(patientUser.getEmail(), patientUser.getName(), doctorName,
+                        String.valueOf(apt.getAppointmentDate()), String.valueOf(apt.getAppointmentTime()));
+            } else {
+                Long doctorId = apt.getDoctor().getId();
+                afterCommit(() -> releaseSlot(doctorId, apt.getAppointmentDate(), apt.getAppointmentTime()));
+                emailService.sendAppointmentCancelled(patientUser.getEmail(), patientUser.getName(), doctorName,
+                        String.valueOf(apt.getAppointmentDate()));
+            }
+        }
+        return results;
+    }
+
+    public AppointmentPage<PatientAppointmentRow> getPatientAppointmentPage(Long patientId, AppointmentStatus status,
+                                                                           LocalDate from, LocalDate to,
+                                                                           String cursor, Integer limit) {
+        AppointmentCursor after = cursor != null && !cursor.isBlank() ? AppointmentCursor.decode(cursor) : null;
+        int size = pageSize(limit);
+        LocalDate fromDate = from != null ? from : EARLIEST_DATE;
+        LocalDate toDate = to != null ? to : LATEST_DATE;
+        Pageable page = PageRequest.of(0, size + 1);
+        List<PatientAppointmentRow> rows;
+        if (after == null) {
+            rows = status == null
+                    ? appointmentRepository.findPatientFirstPage(patientId, fromDate, toDate, page)
+                    : appointmentRepository.findPatientFirstPageByStatus(patientId, status, fromDate, toDate, page);
+        } else {
+            rows = status == null
+                    ? appointmentRepository.findPatientPageAfter(patientId, fromDate, toDate,
+                            after.date(), after.time(), after.id(), page)
+                    : appointmentRepository.findPatientPageAfterByStatus(patientId, status, fromDate, toDate,
+                            after.date(), after.time(), after.id(), page);
+        }
+        return toPage(rows, size, last -> new AppointmentCursor(last.appointmentDate(), last.appointmentTime(), last.id()));
+    }
+
+    public AppointmentPage<DoctorAppointmentRow> getDoctorAppointmentPage(Long doctorId, AppointmentStatus status,
+                                                                         LocalDate from, LocalDate to,
+                                                                         String cursor, Integer limit) {
+        AppointmentCursor after = cursor != null && !cursor.isBlank() ? AppointmentCursor.decode(cursor) : null;
+        int size = pageSize(limit);
+        LocalDate fromDate = from != null ? from : EARLIEST_DATE;
+        LocalDate toDate = to != null ? to : LATEST_DATE;
+        Pageable page = PageRequest.of(0, size + 1);
+        List<DoctorAppointmentRow> rows;
+        if (after == null) {
+            rows = status == null
+                    ? appointmentRepository.findDoctorFirstPage(doctorId, fromDate, toDate, page)
+                    : appointmentRepository.findDoctorFirstPageByStatus(doctorId, status, fromDate, toDate, page);
+        } else {
+            rows = status == null
+                    ? appointmentRepository.findDoctorPageAfter(doctorId, fromDate, toDate,
+                            after.date(), after.time(), after.id(), page)
+                    : appointmentRepository.findDoctorPageAfterByStatus(doctorId, status, fromDate, toDate,
+                            after.date(), after.time(), after.id(), page);
+        }
+        return toPage(rows, size, last -> new AppointmentCursor(last.appointmentDate(), last.appointmentTime(), last.id()));
+    }
+
+    // Totals per status for the dashboards, which load the listings one page at a time
+    public Map<String, Long> getPatientAppointmentCounts(Long patientId) {
+        return toCounts(appointmentRepository.countByStatusForPatient(patientId));
+    }
+
+    public Map<String, Long> getDoctorAppointmentCounts(Long doctorId) {
+        return toCounts(appointmentRepository.countByStatusForDoctor(doctorId));
+    }
+
+    private static Map<String, Long> toCounts(List<Object[]> rows) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long total = 0;
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            counts.put(status.name().toLowerCase(), 0L);
+        }
+        for (Object[] row : rows) {
+            long count = (Long) row[1];
+            counts.put(((AppointmentStatus) row[0]).name().toLowerCase(), count);
+            total += count;
+        }
+        counts.put("total", total);
+        return counts;
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    // One extra row is fetched to learn whether another page exists
+    private <T> AppointmentPage<T> toPage(List<T> rows, int size, Function<T, AppointmentCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new AppointmentPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new AppointmentPage<>(items, cursorOf.apply(items.get(size - 1)).encode());
+    }
+
     public List<Appointment> getAllAppointments() {
         return appointmentRepository.findAll();
     }
@@ -44,4 +393,32 @@ public class AppointmentService {
     public void deleteAppointment(Long id) {
         appointmentRepository.deleteById(id);
     }
-}
\ No newline at end of file
+
+    // The slot stays booked until the waitlist has had it: it is handed straight to the next
+    // waiting patient as a held offer, and only becomes bookable if nobody is waiting for it
+    private void releaseSlot(Long doctorId, LocalDate date, LocalTime time) {
+        waitlistService.onSlotFreed(doctorId, date, time);
+    }
+
+    // Bumps the list versions behind the ETags as part of the write and publishes the
+    // change to live subscribers once committed
+    private void changed(String type, Appointment apt) {
+        responseVersions.appointmentChanged(apt.getDoctor().getId(),
+                apt.getDoctor().getUser().getId(), apt.getPatient().getUser().getId());
+        afterCommit(() -> eventBus.publish(type, apt));
+    }
+
+    // Runs the action once the surrounding transaction has committed, or immediately without one
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
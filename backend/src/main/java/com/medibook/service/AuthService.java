@@ -1,16 +1,16 @@
 package com.medibook.service;
 
+import com.medibook.config.ReplicaRoutingDataSource;
 import com.medibook.dto.*;
 import com.medibook.entity.*;
 import com.medibook.repository.*;
-import com.medibook.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class AuthService {
@@ -25,13 +25,16 @@ public class AuthService {
     private DoctorRepository doctorRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private RefreshTokenService refreshTokenService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private DoctorService doctorService;
+
+    @Autowired
+    private AdminStatsService statsService;
 
     public User registerPatient(RegisterRequest request) {
         // Validate mandatory fields
@@ -55,7 +58,7 @@ public class AuthService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword().trim()));
+        user.setPassword(passwordHasher.encode(request.getPassword().trim()));
         user.setPhone(request.getPhone());
         user.setRole(Role.PATIENT);
         User savedUser = userRepository.save(user);
@@ -101,7 +104,7 @@ public class AuthService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword().trim()));
+        user.setPassword(passwordHasher.encode(request.getPassword().trim()));
         user.setPhone(request.getPhone());
         user.setRole(Role.DOCTOR);
         User savedUser = userRepository.save(user);
@@ -116,6 +119,8 @@ public class AuthService {
         doctor.setLicenseNumber(request.getLicenseNumber());
         doctor.setVerified(false);
         doctorRepository.save(doctor);
+        doctorService.onDoctorChanged(doctor);
+        statsService.onDoctorRegistered();
 
         return savedUser;
     }
@@ -128,7 +133,7 @@ public class AuthService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword().trim()));
+        user.setPassword(passwordHasher.encode(request.getPassword().trim()));
         user.setPhone(request.getPhone());
         user.setRole(Role.ADMIN);
         userRepository.save(user);
@@ -136,20 +141,56 @@ public class AuthService {
         return user;
     }
 
+    // Loads the user once and checks the password on PasswordHasher's pool, instead of
+    // going through the AuthenticationManager and then reading the user again
     public JwtResponse login(LoginRequest request) {
+        String email = request.getEmail().trim();
+        String password = request.getPassword().trim();
+
+        // Primary, so an account registered a moment ago can sign in straight away
+        User user = ReplicaRoutingDataSource.onPrimary(() -> userRepository.findByEmail(email)).orElse(null);
+        if (user == null) {
+            passwordHasher.matchesNothing(password);
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!passwordHasher.matches(password, user.getPassword())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!user.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
+        rehashIfNeeded(user, password);
 
-    String email = request.getEmail().trim();
-    String password = request.getPassword().trim();
+        return toResponse(refreshTokenService.startSession(user));
+    }
 
-    authenticationManager.authenticate(
-        new UsernamePasswordAuthenticationToken(email, password)
-    );
+    public JwtResponse refresh(String refreshToken) {
+        return toResponse(refreshTokenService.rotate(refreshToken));
+    }
 
-    User user = userRepository.findByEmail(email)
-        .orElseThrow(() -> new RuntimeException("User not found"));
+    public void logout(String refreshToken) {
+        refreshTokenService.logout(refreshToken);
+    }
 
-    String token = jwtUtil.generateToken(user.getEmail(), user.getRole().name());
+    private static JwtResponse toResponse(RefreshTokenService.IssuedTokens tokens) {
+        User user = tokens.user();
+        return new JwtResponse(tokens.accessToken(), user.getId(), user.getName(), user.getEmail(), user.getRole().name(),
+                tokens.refreshToken(), tokens.expiresInSeconds());
+    }
 
-    return new JwtResponse(token, user.getId(), user.getName(), user.getEmail(), user.getRole().name());
+    // After auth.bcrypt.strength changes, each user's hash moves to the new cost the next
+    // time they sign in, off the request path
+    private void rehashIfNeeded(User user, String password) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return;
+        }
+        String oldHash = user.getPassword();
+        passwordHasher.encodeWhenIdle(password).whenComplete((newHash, error) -> {
+            if (newHash != null) {
+                userRepository.replacePasswordHash(user.getId(), oldHash, newHash);
+            } else if (error != null && !(error instanceof CancellationException)) {
+                System.err.println("Could not rehash password for user " + user.getId() + ": " + error.getMessage());
+            }
+        });
+    }
 }
-}
\ No newline at end of file
@@ -0,0 +1,488 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.DoctorScheduleException;
+import com.medibook.entity.DoctorScheduleRule;
+import com.medibook.repository.AppointmentRepository;
+import com.medibook.repository.DoctorRepository;
+import com.medibook.repository.DoctorScheduleExceptionRepository;
+import com.medibook.repository.DoctorScheduleRuleRepository;
+import com.medibook.repository.WaitlistEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Bookable slots per doctor and day, materialized from the weekly schedule and its
+// exceptions for a rolling horizon. Claiming a slot is a single bitmap update.
+@Service
+public class AvailabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityService.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleRuleRepository ruleRepository;
+
+    @Autowired
+    private DoctorScheduleExceptionRepository exceptionRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    // Hours for doctors who have not set up a weekly schedule
+    @Value("${availability.day-start:09:00}")
+    private String dayStartValue;
+
+    @Value("${availability.day-end:18:00}")
+    private String dayEndValue;
+
+    @Value("${availability.slot-minutes:30}")
+    private int slotMinutes;
+
+    @Value("${availability.max-range-days:31}")
+    private int maxRangeDays;
+
+    // How far ahead appointments can be booked
+    @Value("${availability.horizon-days:60}")
+    private int horizonDays;
+
+    private DaySlots defaultDay;
+
+    // doctorId -> (epochDay -> that day's slot grid with open and booked bitmaps)
+    private final Map<Long, Map<Long, DaySlots>> calendars = new ConcurrentHashMap<>();
+
+    // doctorId -> System.nanoTime() of the last booked bit this node set or cleared
+    private final Map<Long, Long> lastLocalChange = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        LocalTime dayStart = LocalTime.parse(dayStartValue);
+        LocalTime dayEnd = LocalTime.parse(dayEndValue);
+        int minutes = (dayEnd.toSecondOfDay() - dayStart.toSecondOfDay()) / 60;
+        if (slotMinutes <= 0 || minutes <= 0 || minutes % slotMinutes != 0) {
+            throw new IllegalStateException("availability.day-start/day-end must span a whole number of slots");
+        }
+        if (minutes / slotMinutes > Long.SIZE) {
+            throw new IllegalStateException("At most " + Long.SIZE + " slots per day are supported, got " + minutes / slotMinutes);
+        }
+        defaultDay = DaySlots.of(dayStart, dayEnd, slotMinutes, null, null);
+    }
+
+    // Materialize every doctor's horizon and load the booked slots once the context is up
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void seed() {
+        roll();
+    }
+
+    // Rolls the horizon forward and picks up schedule changes made on other nodes
+    @Scheduled(initialDelayString = "${availability.materialize-interval-ms:3600000}",
+            fixedDelayString = "${availability.materialize-interval-ms:3600000}")
+    public void roll() {
+        ReplicaRoutingDataSource.runOnPrimary(() -> {
+            materializeAll();
+            List<Object[]> rows = appointmentRepository.findBookedSlotsFrom(LocalDate.now());
+            for (Object[] row : rows) {
+                markBooked((Long) row[0], (LocalDate) row[1], (LocalTime) row[2], (Integer) row[3]);
+            }
+            log.info("Availability seeded with {} booked slots", rows.size());
+        });
+    }
+
+    // Brings the booked bits in line with the database, so bookings and cancellations made on
+    // other nodes show up here within one interval. Held waitlist offers count as booked.
+    // Every slot an appointment overlaps is booked, also when it no longer starts on the grid.
+    @Scheduled(initialDelayString = "${availability.reconcile-interval-ms:10000}",
+            fixedDelayString = "${availability.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        long snapshotAt = System.nanoTime();
+        LocalDate from = LocalDate.now();
+        Map<Long, Map<Long, List<Booking>>> taken = new HashMap<>();
+        ReplicaRoutingDataSource.runOnPrimary(() -> {
+            collectSlots(taken, appointmentRepository.findBookedSlotsFrom(from));
+            collectSlots(taken, waitlistRepository.findOfferedSlotsFrom(from));
+        });
+
+        int changed = 0;
+        for (Map.Entry<Long, Map<Long, DaySlots>> calendar : calendars.entrySet()) {
+            Long doctorId = calendar.getKey();
+            Map<Long, List<Booking>> doctorTaken = taken.getOrDefault(doctorId, Map.of());
+            for (Long day : calendar.getValue().keySet()) {
+                List<Booking> bookings = doctorTaken.getOrDefault(day, List.of());
+                boolean[] updated = new boolean[1];
+                calendar.getValue().computeIfPresent(day, (d, slots) -> {
+                    // A claim or release made here after the snapshot may not be committed yet; next run
+                    Long changedAt = lastLocalChange.get(doctorId);
+                    if (changedAt != null && changedAt - snapshotAt > 0) {
+                        return slots;
+                    }
+                    long booked = 0L;
+                    for (Booking booking : bookings) {
+                        booked |= covered(slots, booking.time(), booking.minutes());
+                    }
+                    updated[0] = booked != slots.booked();
+                    return updated[0] ? slots.withBooked(booked) : slots;
+                });
+                if (updated[0]) {
+                    changed++;
+                }
+            }
+        }
+        if (changed > 0) {
+            log.info("Availability reconciled {} doctor-days with the database", changed);
+        }
+    }
+
+    // Rows of doctor id, date, time and optionally slot minutes
+    private static void collectSlots(Map<Long, Map<Long, List<Booking>>> taken, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (row[0] == null || row[1] == null || row[2] == null) {
+                continue;
+            }
+            taken.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .computeIfAbsent(((LocalDate) row[1]).toEpochDay(), day -> new ArrayList<>())
+                    .add(new Booking((LocalTime) row[2], row.length > 3 ? (Integer) row[3] : null));
+        }
+    }
+
+    // Rebuilds one doctor's horizon after their schedule changed. Bookings are re-applied
+    // from the database since a day that was closed in between carries none over.
+    public void rematerialize(Long doctorId) {
+        ReplicaRoutingDataSource.runOnPrimary(() -> {
+            LocalDate from = LocalDate.now();
+            materialize(doctorId, ruleRepository.findByDoctorId(doctorId),
+                    exceptionRepository.findByDoctorIdFrom(doctorId, from), from);
+            for (Object[] row : appointmentRepository.findBookedSlotsForDoctorFrom(doctorId, from)) {
+                markBooked(doctorId, (LocalDate) row[0], (LocalTime) row[1], (Integer) row[2]);
+            }
+        });
+    }
+
+    // Atomically claims the slot; returns false if it is already taken
+    public boolean reserve(Long doctorId, LocalDate date, LocalTime time) {
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today) || date.isAfter(today.plusDays(horizonDays))) {
+            throw new IllegalArgumentException("Appointments can be booked up to " + horizonDays + " days ahead");
+        }
+        if (date.equals(today) && !time.isAfter(LocalTime.now())) {
+            throw new IllegalArgumentException("Selected time has already passed");
+        }
+        boolean[] claimed = new boolean[1];
+        touched(doctorId);
+        calendar(doctorId).compute(date.toEpochDay(), (day, slots) -> {
+            int slot = slots != null ? slots.indexOf(time) : -1;
+            if (slot < 0 || (slots.open() & (1L << slot)) == 0) {
+                throw new IllegalArgumentException("Selected time is not one of the doctor's available slots");
+            }
+            if ((slots.booked() & (1L << slot)) != 0) {
+                return slots;
+            }
+            claimed[0] = true;
+            return slots.withBooked(slots.booked() | (1L << slot));
+        });
+        return claimed[0];
+    }
+
+    public void markBooked(Long doctorId, LocalDate date, LocalTime time) {
+        markBooked(doctorId, date, time, null);
+    }
+
+    // minutes is the slot length the appointment was booked with, null for one slot of the current grid
+    public void markBooked(Long doctorId, LocalDate date, LocalTime time, Integer minutes) {
+        if (doctorId == null || date == null || time == null || !calendars.containsKey(doctorId)) {
+            return;
+        }
+        touched(doctorId);
+        calendars.get(doctorId).computeIfPresent(date.toEpochDay(),
+                (day, slots) -> slots.withBooked(slots.booked() | covered(slots, time, minutes)));
+    }
+
+    // Slots of the grid overlapping a booking. Without a recorded length a booking on the grid
+    // takes its slot, and one off the grid the default slot length.
+    private long covered(DaySlots slots, LocalTime time, Integer minutes) {
+        if (minutes == null) {
+            int slot = slots.indexOf(time);
+            return slot >= 0 ? 1L << slot : slots.overlapping(time, slotMinutes);
+        }
+        return slots.overlapping(time, minutes);
+    }
+
+    public void release(Long doctorId, LocalDate date, LocalTime time) {
+        if (doctorId == null || date == null || time == null || !calendars.containsKey(doctorId)) {
+            return;
+        }
+        touched(doctorId);
+        calendars.get(doctorId).computeIfPresent(date.toEpochDay(), (day, slots) -> {
+            int slot = slots.indexOf(time);
+            return slot < 0 ? slots : slots.withBooked(slots.booked() & ~(1L << slot));
+        });
+    }
+
+    // Recorded before the bitmap update, so reconcile() sees it once the update is visible
+    private void touched(Long doctorId) {
+        lastLocalChange.put(doctorId, System.nanoTime());
+    }
+
+    // On the doctor's grid and within their hours that day, booked or not
+    public boolean isScheduled(Long doctorId, LocalDate date, LocalTime time) {
+        DaySlots slots = day(doctorId, date);
+        int slot = slots.indexOf(time);
+        return slot >= 0 && (slots.open() & (1L << slot)) != 0;
+    }
+
+    public boolean isAvailable(Long doctorId, LocalDate date, LocalTime time) {
+        DaySlots slots = day(doctorId, date);
+        int slot = slots.indexOf(time);
+        return slot >= 0 && (slots.free() & (1L << slot)) != 0;
+    }
+
+    public List<Map<String, Object>> getAvailability(Long doctorId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        if (from.plusDays(maxRangeDays).isBefore(to)) {
+            throw new IllegalArgumentException("Range must not exceed " + maxRangeDays + " days");
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalTime now = LocalTime.now();
+
+        List<Map<String, Object>> days = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DaySlots slots = day(doctorId, date);
+            long free = bookable(slots, date, today, now);
+
+            List<String> labels = new ArrayList<>(Long.bitCount(free));
+            for (long bits = free; bits != 0; bits &= bits - 1) {
+                labels.add(slots.slotTime(Long.numberOfTrailingZeros(bits)).toString());
+            }
+
+            Map<String, Object> day = new HashMap<>();
+            day.put("date", date.toString());
+            day.put("slotMinutes", slots.count() > 0 ? slots.slotMinutes() : slotMinutes);
+            day.put("availableSlots", labels);
+            days.add(day);
+        }
+        return days;
+    }
+
+    // Earliest bookable slot on or after the given date, or null if the horizon is fully booked
+    public Map<String, Object> findNextFreeSlot(Long doctorId, LocalDate from) {
+        LocalDate today = LocalDate.now();
+        LocalTime now = LocalTime.now();
+        LocalDate last = today.plusDays(horizonDays);
+        for (LocalDate date = from.isBefore(today) ? today : from; !date.isAfter(last); date = date.plusDays(1)) {
+            DaySlots slots = day(doctorId, date);
+            long free = bookable(slots, date, today, now);
+            if (free != 0) {
+                Map<String, Object> slot = new HashMap<>();
+                slot.put("date", date.toString());
+                slot.put("time", slots.slotTime(Long.numberOfTrailingZeros(free)).toString());
+                slot.put("slotMinutes", slots.slotMinutes());
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    // Slot length of the doctor's grid on that day
+    public int slotMinutesOn(Long doctorId, LocalDate date) {
+        DaySlots slots = day(doctorId, date);
+        return slots.count() > 0 ? slots.slotMinutes() : slotMinutes;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    private void materializeAll() {
+        LocalDate from = LocalDate.now();
+        Map<Long, List<DoctorScheduleRule>> rules = ruleRepository.findAll().stream()
+                .collect(Collectors.groupingBy(DoctorScheduleRule::getDoctorId));
+        Map<Long, List<DoctorScheduleException>> exceptions = exceptionRepository.findInRange(from, lastMaterializedDay(from)).stream()
+                .collect(Collectors.groupingBy(DoctorScheduleException::getDoctorId));
+
+        List<Long> doctorIds = doctorRepository.findAllIds();
+        for (Long doctorId : doctorIds) {
+            materialize(doctorId, rules.getOrDefault(doctorId, List.of()), exceptions.getOrDefault(doctorId, List.of()), from);
+        }
+        calendars.keySet().retainAll(new HashSet<>(doctorIds));
+        log.info("Materialized a {}-day slot horizon for {} doctors", horizonDays, doctorIds.size());
+    }
+
+    private void materialize(Long doctorId, List<DoctorScheduleRule> rules, List<DoctorScheduleException> exceptions, LocalDate from) {
+        Map<DayOfWeek, DaySlots> weekly = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            weekly.put(dayOfWeek, rules.isEmpty() ? defaultDay : DaySlots.CLOSED);
+        }
+        for (DoctorScheduleRule rule : rules) {
+            weekly.put(rule.getDayOfWeek(), DaySlots.of(rule.getStartTime(), rule.getEndTime(),
+                    rule.getSlotMinutes(), rule.getBreakStart(), rule.getBreakEnd()));
+        }
+        Map<LocalDate, DoctorScheduleException> overrides = new HashMap<>();
+        for (DoctorScheduleException exception : exceptions) {
+            overrides.put(exception.getDate(), exception);
+        }
+
+        // One day past the booking horizon so bookings at its edge work until the next roll
+        LocalDate to = lastMaterializedDay(from);
+        Map<Long, DaySlots> days = calendars.computeIfAbsent(doctorId, id -> new ConcurrentHashMap<>());
+        days.keySet().removeIf(day -> day < from.toEpochDay() || day > to.toEpochDay());
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DaySlots template = weekly.get(date.getDayOfWeek());
+            DoctorScheduleException override = overrides.get(date);
+            if (override != null) {
+                int minutes = template.count() > 0 ? template.slotMinutes() : slotMinutes;
+                template = override.getStartTime() == null ? DaySlots.CLOSED
+                        : DaySlots.of(override.getStartTime(), override.getEndTime(), minutes, null, null);
+            }
+            DaySlots fresh = template;
+            days.compute(date.toEpochDay(), (day, old) -> old == null ? fresh : fresh.withBookedFrom(old));
+        }
+    }
+
+    private LocalDate lastMaterializedDay(LocalDate from) {
+        return from.plusDays(horizonDays + 1L);
+    }
+
+    // Open, unbooked slots that have not started yet
+    private static long bookable(DaySlots slots, LocalDate date, LocalDate today, LocalTime now) {
+        if (date.isBefore(today)) {
+            return 0L;
+        }
+        long free = slots.free();
+        if (free != 0 && date.equals(today) && !now.isBefore(slots.start())) {
+            int started = (now.toSecondOfDay() - slots.start().toSecondOfDay()) / (slots.slotMinutes() * 60) + 1;
+            free = started >= Long.SIZE ? 0L : free & (-1L << started);
+        }
+        return free;
+    }
+
+    private DaySlots day(Long doctorId, LocalDate date) {
+        Map<Long, DaySlots> days = calendars.get(doctorId);
+        if (days == null) {
+            // Registered after the last materialization run, or not a doctor at all
+            if (!doctorRepository.existsById(doctorId)) {
+                return DaySlots.CLOSED;
+            }
+            rematerialize(doctorId);
+            days = calendars.get(doctorId);
+        }
+        DaySlots slots = days != null ? days.get(date.toEpochDay()) : null;
+        return slots != null ? slots : DaySlots.CLOSED;
+    }
+
+    private Map<Long, DaySlots> calendar(Long doctorId) {
+        Map<Long, DaySlots> days = calendars.get(doctorId);
+        if (days == null) {
+            rematerialize(doctorId);
+            days = calendars.get(doctorId);
+        }
+        return days != null ? days : calendars.computeIfAbsent(doctorId, id -> new ConcurrentHashMap<>());
+    }
+
+    private record Booking(LocalTime time, Integer minutes) {
+    }
+
+    // Slot grid of one doctor-day: bit i of open/booked is the slot starting at start + i * slotMinutes
+    private record DaySlots(LocalTime start, int slotMinutes, int count, long open, long booked) {
+
+        static final DaySlots CLOSED = new DaySlots(LocalTime.MIDNIGHT, 0, 0, 0L, 0L);
+
+        static DaySlots of(LocalTime start, LocalTime end, int slotMinutes, LocalTime breakStart, LocalTime breakEnd) {
+            int count = Math.min(Long.SIZE, (end.toSecondOfDay() - start.toSecondOfDay()) / 60 / slotMinutes);
+            long open = 0L;
+            for (int i = 0; i < count; i++) {
+                LocalTime slotStart = start.plusMinutes((long) i * slotMinutes);
+                LocalTime slotEnd = slotStart.plusMinutes(slotMinutes);
+                boolean onBreak = breakStart != null && breakEnd != null
+                        && slotStart.isBefore(breakEnd) && breakStart.isBefore(slotEnd);
+                if (!onBreak) {
+                    open |= 1L << i;
+                }
+            }
+            return new DaySlots(start, slotMinutes, count, open, 0L);
+        }
+
+        // Index of the slot starting exactly at the given time, or -1
+        int indexOf(LocalTime time) {
+            if (count == 0 || time == null) {
+                return -1;
+            }
+            int offset = time.toSecondOfDay() - start.toSecondOfDay();
+            int slotSeconds = slotMinutes * 60;
+            if (offset < 0 || offset % slotSeconds != 0 || time.getNano() != 0) {
+                return -1;
+            }
+            int slot = offset / slotSeconds;
+            return slot < count ? slot : -1;
+        }
+
+        // Slots overlapping [time, time + minutes)
+        long overlapping(LocalTime time, int minutes) {
+            if (count == 0 || time == null || minutes <= 0) {
+                return 0L;
+            }
+            int from = time.toSecondOfDay() - start.toSecondOfDay();
+            int to = from + minutes * 60;
+            int slotSeconds = slotMinutes * 60;
+            int first = Math.max(0, Math.floorDiv(from, slotSeconds));
+            int last = Math.min(count - 1, Math.floorDiv(to - 1, slotSeconds));
+            long bits = 0L;
+            for (int slot = first; slot <= last; slot++) {
+                bits |= 1L << slot;
+            }
+            return bits;
+        }
+
+        LocalTime slotTime(int slot) {
+            return start.plusMinutes((long) slot * slotMinutes);
+        }
+
+        long free() {
+            return open & ~booked;
+        }
+
+        DaySlots withBooked(long bits) {
+            return new DaySlots(start, slotMinutes, count, open, bits);
+        }
+
+        // Carries bookings over from the previous grid of the same day. Every new slot that
+        // overlaps a booked old slot is booked, since the unique key only stops bookings that
+        // start at the same time, not ones that overlap
+        DaySlots withBookedFrom(DaySlots previous) {
+            if (previous.start.equals(start) && previous.slotMinutes == slotMinutes && previous.count == count) {
+                return withBooked(previous.booked);
+            }
+            long bits = 0L;
+            for (long old = previous.booked; old != 0; old &= old - 1) {
+                bits |= overlapping(previous.slotTime(Long.numberOfTrailingZeros(old)), previous.slotMinutes);
+            }
+            return withBooked(bits);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.medibook.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.medibook.config.TwoLevelCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class CacheStatsService {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+                CacheStats local = caffeine.stats();
+                entry.put("size", caffeine.estimatedSize());
+                entry.put("hits", local.hitCount());
+                entry.put("misses", local.missCount());
+                entry.put("hitRate", local.hitRate());
+                entry.put("evictions", local.evictionCount());
+                entry.put("averageLoadMillis", local.averageLoadPenalty() / 1_000_000.0);
+            }
+            if (cache instanceof TwoLevelCache twoLevel) {
+                entry.put("remoteHits", twoLevel.getRemoteHits());
+                entry.put("remoteMisses", twoLevel.getRemoteMisses());
+                entry.put("remoteErrors", twoLevel.getRemoteErrors());
+            }
+            stats.put(name, entry);
+        }
+        return stats;
+    }
+}
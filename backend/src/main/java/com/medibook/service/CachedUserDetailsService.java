@@ -0,0 +1,44 @@
+package com.medibook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+
+// Short-lived UserDetails cache for the JWT filters. Login reads the user row
+// itself (AuthService.login) so password checks never see stale data.
+@Service
+public class CachedUserDetailsService {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Value("${security.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${security.user-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserDetails> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public UserDetails loadUserByUsername(String email) {
+        return cache.get(email, userDetailsService::loadUserByUsername);
+    }
+
+    public void evict(String email) {
+        cache.invalidate(email);
+    }
+}
@@ -0,0 +1,89 @@
+package com.medibook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Serialized and gzipped bodies of the hottest public lists, kept per ETag so repeat
+// requests skip both JSON serialization and compression until the list changes. Bodies
+// also expire after response.cache.ttl-seconds so nothing outlives a missed version bump.
+@Component
+public class CompressedResponseCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Cache<String, Body> bodies;
+
+    public CompressedResponseCache(@Value("${response.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.bodies = Caffeine.newBuilder()
+                .maximumSize(64)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public ResponseEntity<byte[]> respond(String name, String etag, String acceptEncoding, Supplier<?> loader) {
+        Body body = etag != null ? bodies.getIfPresent(name) : null;
+        if (body == null || !body.etag().equals(etag)) {
+            body = render(etag, loader.get());
+            if (etag != null) {
+                bodies.put(name, body);
+            }
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return builder.body(body.json());
+    }
+
+    private Body render(String etag, Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new Body(etag, json, compressed.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    private record Body(String etag, byte[] json, byte[] gzip) {
+    }
+}
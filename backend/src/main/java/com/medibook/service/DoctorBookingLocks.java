@@ -0,0 +1,33 @@
+package com.medibook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed pool of locks shared by hashing doctor IDs, so bookings only
+// contend when they target the same doctor (or a doctor on the same stripe)
+@Component
+public class DoctorBookingLocks {
+
+    @Value("${booking.lock-stripes:64}")
+    private int stripes;
+
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock forDoctor(Long doctorId) {
+        int h = Long.hashCode(doctorId);
+        h ^= (h >>> 16);
+        return locks[h & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,185 @@
+package com.medibook.service;
+
+import com.medibook.entity.DoctorScheduleException;
+import com.medibook.entity.DoctorScheduleRule;
+import com.medibook.repository.DoctorRepository;
+import com.medibook.repository.DoctorScheduleExceptionRepository;
+import com.medibook.repository.DoctorScheduleRuleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+@Service
+public class DoctorScheduleService {
+
+    private static final int MIN_SLOT_MINUTES = 5;
+    private static final int MAX_SLOT_MINUTES = 240;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleRuleRepository ruleRepository;
+
+    @Autowired
+    private DoctorScheduleExceptionRepository exceptionRepository;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    public Map<String, Object> getSchedule(Long doctorId) {
+        requireDoctor(doctorId);
+        List<DoctorScheduleRule> rules = new ArrayList<>(ruleRepository.findByDoctorId(doctorId));
+        rules.sort(Comparator.comparing(DoctorScheduleRule::getDayOfWeek));
+
+        Map<String, Object> schedule = new HashMap<>();
+        schedule.put("doctorId", doctorId);
+        // Without weekly rules the default hours apply every day
+        schedule.put("usesDefaultHours", rules.isEmpty());
+        schedule.put("rules", rules);
+        schedule.put("exceptions", exceptionRepository.findByDoctorIdFrom(doctorId, LocalDate.now()));
+        return schedule;
+    }
+
+    // Replaces the whole weekly template; weekdays without a rule are days off
+    @Transactional
+    public List<DoctorScheduleRule> replaceWeeklyRules(Long doctorId, List<Map<String, Object>> rawRules) {
+        requireDoctor(doctorId);
+        Set<DayOfWeek> seen = EnumSet.noneOf(DayOfWeek.class);
+        List<DoctorScheduleRule> rules = new ArrayList<>(rawRules.size());
+        for (Map<String, Object> raw : rawRules) {
+            DoctorScheduleRule rule = new DoctorScheduleRule();
+            rule.setDoctorId(doctorId);
+            rule.setDayOfWeek(DayOfWeek.valueOf(required(raw, "dayOfWeek").toUpperCase()));
+            rule.setStartTime(LocalTime.parse(required(raw, "startTime")));
+            rule.setEndTime(LocalTime.parse(required(raw, "endTime")));
+            rule.setSlotMinutes(Integer.parseInt(required(raw, "slotMinutes")));
+            rule.setBreakStart(optionalTime(raw, "breakStart"));
+            rule.setBreakEnd(optionalTime(raw, "breakEnd"));
+            if (!seen.add(rule.getDayOfWeek())) {
+                throw new IllegalArgumentException("More than one rule for " + rule.getDayOfWeek());
+            }
+            validateHours(rule.getStartTime(), rule.getEndTime(), rule.getSlotMinutes());
+            validateBreak(rule);
+            rules.add(rule);
+        }
+
+        ruleRepository.deleteByDoctorId(doctorId);
+        List<DoctorScheduleRule> saved = ruleRepository.saveAll(rules);
+        afterCommit(() -> availabilityService.rematerialize(doctorId));
+        return saved;
+    }
+
+    // Adds or replaces the exception for one date: {"date", "startTime"?, "endTime"?, "reason"?}
+    @Transactional
+    public DoctorScheduleException putException(Long doctorId, Map<String, Object> raw) {
+        requireDoctor(doctorId);
+        LocalDate date = LocalDate.parse(required(raw, "date"));
+        if (date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Exceptions can only be set for today or later");
+        }
+        LocalTime start = optionalTime(raw, "startTime");
+        LocalTime end = optionalTime(raw, "endTime");
+        if ((start == null) != (end == null)) {
+            throw new IllegalArgumentException("startTime and endTime must be given together, or both left out for a day off");
+        }
+
+        DoctorScheduleException exception = exceptionRepository.findByDoctorIdAndDate(doctorId, date)
+                .orElseGet(DoctorScheduleException::new);
+        exception.setDoctorId(doctorId);
+        exception.setDate(date);
+        exception.setStartTime(start);
+        exception.setEndTime(end);
+        exception.setReason(raw.get("reason") != null ? raw.get("reason").toString() : null);
+        if (start != null) {
+            int slotMinutes = ruleRepository.findByDoctorId(doctorId).stream()
+                    .filter(rule -> rule.getDayOfWeek() == date.getDayOfWeek())
+                    .map(DoctorScheduleRule::getSlotMinutes)
+                    .findFirst()
+                    .orElse(availabilityService.getSlotMinutes());
+            validateHours(start, end, slotMinutes);
+        }
+
+        DoctorScheduleException saved = exceptionRepository.save(exception);
+        afterCommit(() -> availabilityService.rematerialize(doctorId));
+        return saved;
+    }
+
+    @Transactional
+    public void deleteException(Long doctorId, Long exceptionId) {
+        DoctorScheduleException exception = exceptionRepository.findById(exceptionId)
+                .filter(e -> e.getDoctorId().equals(doctorId))
+                .orElseThrow(() -> new RuntimeException("Schedule exception not found"));
+        exceptionRepository.delete(exception);
+        afterCommit(() -> availabilityService.rematerialize(doctorId));
+    }
+
+    private void validateHours(LocalTime start, LocalTime end, int slotMinutes) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("startTime must be before endTime");
+        }
+        if (slotMinutes < MIN_SLOT_MINUTES || slotMinutes > MAX_SLOT_MINUTES) {
+            throw new IllegalArgumentException("slotMinutes must be between " + MIN_SLOT_MINUTES + " and " + MAX_SLOT_MINUTES);
+        }
+        int slots = (end.toSecondOfDay() - start.toSecondOfDay()) / 60 / slotMinutes;
+        if (slots == 0) {
+            throw new IllegalArgumentException("Working hours must fit at least one slot");
+        }
+        if (slots > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " slots per day are supported, got " + slots);
+        }
+    }
+
+    private void validateBreak(DoctorScheduleRule rule) {
+        LocalTime breakStart = rule.getBreakStart();
+        LocalTime breakEnd = rule.getBreakEnd();
+        if (breakStart == null && breakEnd == null) {
+            return;
+        }
+        if (breakStart == null || breakEnd == null || !breakStart.isBefore(breakEnd)) {
+            throw new IllegalArgumentException("breakStart and breakEnd must be given together, start before end");
+        }
+        if (breakStart.isBefore(rule.getStartTime()) || breakEnd.isAfter(rule.getEndTime())) {
+            throw new IllegalArgumentException("Break on " + rule.getDayOfWeek() + " must fall within working hours");
+        }
+    }
+
+    private void requireDoctor(Long doctorId) {
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new RuntimeException("Doctor not found: " + doctorId);
+        }
+    }
+
+    private static String required(Map<String, Object> raw, String key) {
+        Object value = raw.get(key);
+        if (value == null || value.toString().isBlank()) {
+            throw new IllegalArgumentException(key + " is required");
+        }
+        return value.toString();
+    }
+
+    private static LocalTime optionalTime(Map<String, Object> raw, String key) {
+        Object value = raw.get(key);
+        return value == null || value.toString().isBlank() ? null : LocalTime.parse(value.toString());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
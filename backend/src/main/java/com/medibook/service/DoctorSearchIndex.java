@@ -0,0 +1,371 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.Doctor;
+import com.medibook.repository.DoctorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Inverted index over doctor name, specialization, qualification and hospital.
+// Terms live in a sorted map so prefix lookups are a range scan; typos are
+// matched by edit distance against terms of similar length. Writes on this node are
+// applied as they happen; the periodic rebuild picks up those made on other nodes.
+@Service
+public class DoctorSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DoctorSearchIndex.class);
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    private static final BigDecimal[] FEE_BUCKETS = {
+        new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("2000")
+    };
+    private static final int[] EXPERIENCE_BUCKETS = {5, 10, 20};
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private volatile Index current = new Index();
+
+    // Set while a rebuild reads the database: doctor id -> entry written here since, null if removed
+    private Map<Long, Entry> changedDuringRebuild;
+
+    private final Object rebuildLock = new Object();
+
+    private static final class Index {
+        final NavigableMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            for (String token : entry.tokens()) {
+                terms.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+        }
+
+        void remove(Long doctorId) {
+            Entry old = entries.remove(doctorId);
+            if (old == null) {
+                return;
+            }
+            for (String token : old.tokens()) {
+                Set<Long> ids = terms.get(token);
+                if (ids != null) {
+                    ids.remove(doctorId);
+                    if (ids.isEmpty()) {
+                        terms.remove(token);
+                    }
+                }
+            }
+        }
+    }
+
+    private record Entry(Long id, String name, String specialization, String qualification, String hospitalName,
+                         BigDecimal fee, int experience, boolean verified, double rating, int totalReviews,
+                         Set<String> tokens) {
+    }
+
+    private record Hit(Entry entry, int score) {
+    }
+
+    // Builds a fresh index from the database and swaps it in whole, so searches never see
+    // a half-built one. Local writes made while the snapshot was being read are replayed on top.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${search.rebuild-interval-ms:60000}",
+            fixedDelayString = "${search.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringRebuild = new HashMap<>();
+            }
+            try {
+                List<Doctor> doctors = ReplicaRoutingDataSource.onPrimary(() -> doctorRepository.findAll());
+                Index fresh = new Index();
+                for (Doctor doctor : doctors) {
+                    fresh.put(toEntry(doctor));
+                }
+                int before;
+                synchronized (this) {
+                    changedDuringRebuild.forEach((id, entry) -> {
+                        if (entry == null) {
+                            fresh.remove(id);
+                        } else {
+                            fresh.put(entry);
+                        }
+                    });
+                    before = current.entries.size();
+                    current = fresh;
+                }
+                if (before != fresh.entries.size()) {
+                    log.info("Doctor search index rebuilt with {} doctors", fresh.entries.size());
+                }
+            } finally {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    // Replaces the indexed copy of one doctor; called from every doctor write path
+    public synchronized void index(Doctor doctor) {
+        Entry entry = toEntry(doctor);
+        current.put(entry);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(entry.id(), entry);
+        }
+    }
+
+    public synchronized void remove(Long doctorId) {
+        current.remove(doctorId);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(doctorId, null);
+        }
+    }
+
+    private static Entry toEntry(Doctor doctor) {
+        String name = doctor.getUser() != null ? doctor.getUser().getName() : null;
+        Set<String> tokens = new HashSet<>();
+        tokenize(name, tokens);
+        tokenize(doctor.getSpecialization(), tokens);
+        tokenize(doctor.getQualification(), tokens);
+        tokenize(doctor.getHospitalName(), tokens);
+
+        return new Entry(
+                doctor.getId(),
+                name,
+                doctor.getSpecialization(),
+                doctor.getQualification(),
+                doctor.getHospitalName(),
+                doctor.getConsultationFee(),
+                doctor.getExperience() != null ? doctor.getExperience() : 0,
+                Boolean.TRUE.equals(doctor.getVerified()),
+                doctor.getRating() != null ? doctor.getRating() : 0.0,
+                doctor.getTotalReviews() != null ? doctor.getTotalReviews() : 0,
+                tokens
+        );
+    }
+
+    public Map<String, Object> search(String query, BigDecimal minFee, BigDecimal maxFee,
+                                      Integer minExperience, Boolean verified, int limit) {
+        Index index = current;
+        List<String> queryTokens = new ArrayList<>();
+        tokenize(query, queryTokens);
+
+        // Every query term must match; a doctor's score is the sum of its best match per term
+        Map<Long, Integer> scores = null;
+        for (String token : queryTokens) {
+            Map<Long, Integer> termScores = matchTerm(index.terms, token);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        List<Hit> matched = new ArrayList<>();
+        if (scores == null) {
+            for (Entry entry : index.entries.values()) {
+                matched.add(new Hit(entry, 0));
+            }
+        } else {
+            scores.forEach((id, score) -> {
+                Entry entry = index.entries.get(id);
+                if (entry != null) {
+                    matched.add(new Hit(entry, score));
+                }
+            });
+        }
+
+        // Facet counts describe the text matches before facet filters are applied
+        Map<String, Object> facets = facets(matched);
+
+        List<Hit> filtered = new ArrayList<>();
+        for (Hit hit : matched) {
+            Entry e = hit.entry();
+            if (minFee != null && (e.fee() == null || e.fee().compareTo(minFee) < 0)) {
+                continue;
+            }
+            if (maxFee != null && (e.fee() == null || e.fee().compareTo(maxFee) > 0)) {
+                continue;
+            }
+            if (minExperience != null && e.experience() < minExperience) {
+                continue;
+            }
+            if (verified != null && e.verified() != verified) {
+                continue;
+            }
+            filtered.add(hit);
+        }
+
+        filtered.sort(Comparator.comparingInt(Hit::score).reversed()
+                .thenComparing(hit -> hit.entry().rating(), Comparator.reverseOrder())
+                .thenComparing(hit -> hit.entry().totalReviews(), Comparator.reverseOrder())
+                .thenComparing(hit -> hit.entry().id()));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Hit hit : filtered.subList(0, Math.min(limit, filtered.size()))) {
+            Entry e = hit.entry();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", e.id());
+            result.put("name", e.name());
+            result.put("specialization", e.specialization());
+            result.put("qualification", e.qualification());
+            result.put("hospitalName", e.hospitalName());
+            result.put("consultationFee", e.fee());
+            result.put("experience", e.experience());
+            result.put("verified", e.verified());
+            result.put("rating", e.rating());
+            result.put("totalReviews", e.totalReviews());
+            result.put("score", hit.score());
+            results.add(result);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", filtered.size());
+        response.put("results", results);
+        response.put("facets", facets);
+        return response;
+    }
+
+    private static Map<Long, Integer> matchTerm(NavigableMap<String, Set<Long>> terms, String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+
+        Set<Long> exact = terms.get(token);
+        if (exact != null) {
+            exact.forEach(id -> scores.merge(id, EXACT_SCORE, Math::max));
+        }
+
+        for (Map.Entry<String, Set<Long>> term : terms.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+            term.getValue().forEach(id -> scores.merge(id, PREFIX_SCORE, Math::max));
+        }
+
+        int maxDistance = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+        if (maxDistance > 0) {
+            for (Map.Entry<String, Set<Long>> term : terms.entrySet()) {
+                String candidate = term.getKey();
+                // Also compare against the candidate's prefix so "cardiolgy" finds "cardiology"
+                // and "cardo" finds "cardiology"
+                String head = candidate.length() > token.length() ? candidate.substring(0, token.length()) : candidate;
+                if (Math.abs(head.length() - token.length()) <= maxDistance
+                        && editDistance(token, head, maxDistance) <= maxDistance) {
+                    term.getValue().forEach(id -> scores.merge(id, FUZZY_SCORE, Math::max));
+                } else if (Math.abs(candidate.length() - token.length()) <= maxDistance
+                        && editDistance(token, candidate, maxDistance) <= maxDistance) {
+                    term.getValue().forEach(id -> scores.merge(id, FUZZY_SCORE, Math::max));
+                }
+            }
+        }
+        return scores;
+    }
+
+    private Map<String, Object> facets(List<Hit> hits) {
+        long[] feeCounts = new long[FEE_BUCKETS.length + 1];
+        long[] experienceCounts = new long[EXPERIENCE_BUCKETS.length + 1];
+        long verifiedCount = 0;
+        for (Hit hit : hits) {
+            Entry e = hit.entry();
+            if (e.fee() != null) {
+                int bucket = 0;
+                while (bucket < FEE_BUCKETS.length && e.fee().compareTo(FEE_BUCKETS[bucket]) >= 0) {
+                    bucket++;
+                }
+                feeCounts[bucket]++;
+            }
+            int bucket = 0;
+            while (bucket < EXPERIENCE_BUCKETS.length && e.experience() >= EXPERIENCE_BUCKETS[bucket]) {
+                bucket++;
+            }
+            experienceCounts[bucket]++;
+            if (e.verified()) {
+                verifiedCount++;
+            }
+        }
+
+        Map<String, Object> fee = new LinkedHashMap<>();
+        fee.put("0-" + FEE_BUCKETS[0], feeCounts[0]);
+        for (int i = 1; i < FEE_BUCKETS.length; i++) {
+            fee.put(FEE_BUCKETS[i - 1] + "-" + FEE_BUCKETS[i], feeCounts[i]);
+        }
+        fee.put(FEE_BUCKETS[FEE_BUCKETS.length - 1] + "+", feeCounts[FEE_BUCKETS.length]);
+
+        Map<String, Object> experience = new LinkedHashMap<>();
+        experience.put("0-" + (EXPERIENCE_BUCKETS[0] - 1), experienceCounts[0]);
+        for (int i = 1; i < EXPERIENCE_BUCKETS.length; i++) {
+            experience.put(EXPERIENCE_BUCKETS[i - 1] + "-" + (EXPERIENCE_BUCKETS[i] - 1), experienceCounts[i]);
+        }
+        experience.put(EXPERIENCE_BUCKETS[EXPERIENCE_BUCKETS.length - 1] + "+", experienceCounts[EXPERIENCE_BUCKETS.length]);
+
+        Map<String, Object> verified = new LinkedHashMap<>();
+        verified.put("true", verifiedCount);
+        verified.put("false", hits.size() - verifiedCount);
+
+        Map<String, Object> facets = new LinkedHashMap<>();
+        facets.put("consultationFee", fee);
+        facets.put("experience", experience);
+        facets.put("verified", verified);
+        return facets;
+    }
+
+    private static void tokenize(String text, Collection<String> out) {
+        if (text == null) {
+            return;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        for (String token : normalized.split("[^a-z0-9]+")) {
+            if (!token.isEmpty()) {
+                out.add(token);
+            }
+        }
+    }
+
+    // Levenshtein distance with transpositions, giving up once every cell exceeds max
+    private static int editDistance(String a, String b, int max) {
+        int[] prevPrev = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    curr[j] = Math.min(curr[j], prevPrev[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[b.length()];
+    }
+}
@@ -1,8 +1,13 @@
 package com.medibook.service;
 
+import com.medibook.config.CacheConfig;
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.dto.DoctorSummary;
 import com.medibook.entity.Doctor;
 import com.medibook.repository.DoctorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,13 +18,25 @@ public class DoctorService {
     
     @Autowired
     private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorSearchIndex searchIndex;
+
+    @Autowired
+    private ResponseVersions responseVersions;
     
-    public List<Doctor> getAllDoctors() {
-        return doctorRepository.findAll();
+    // Directory reads are cached; every write that changes a doctor calls onDoctorChanged().
+    // Misses load from the primary: straight after an eviction a replica may not have the
+    // write yet, and the stale list would then be cached for the whole TTL. Entries are
+    // DoctorSummary rows so the cache (and Redis, when enabled) never holds password hashes.
+    @Cacheable(cacheNames = CacheConfig.DOCTOR_DIRECTORY, key = "'all'")
+    public List<DoctorSummary> getAllDoctors() {
+        return ReplicaRoutingDataSource.onPrimary(() -> DoctorSummary.of(doctorRepository.findAll()));
     }
     
-    public List<Doctor> getVerifiedDoctors() {
-        return doctorRepository.findByVerified(true);
+    @Cacheable(cacheNames = CacheConfig.DOCTOR_DIRECTORY, key = "'verified'")
+    public List<DoctorSummary> getVerifiedDoctors() {
+        return ReplicaRoutingDataSource.onPrimary(() -> DoctorSummary.of(doctorRepository.findByVerified(true)));
     }
     
     public Doctor getDoctorById(Long id) {
@@ -31,7 +48,17 @@ public class DoctorService {
         return doctorRepository.findByUserId(userId);
     }
     
-    public List<Doctor> getDoctorsBySpecialization(String specialization) {
-        return doctorRepository.findBySpecialization(specialization);
+    @Cacheable(cacheNames = CacheConfig.DOCTOR_DIRECTORY, key = "'spec:' + #specialization")
+    public List<DoctorSummary> getDoctorsBySpecialization(String specialization) {
+        return ReplicaRoutingDataSource.onPrimary(() -> DoctorSummary.of(doctorRepository.findBySpecialization(specialization)));
+    }
+    
+    // Drops the cached directory, refreshes the doctor's search index entry and moves the
+    // directory ETag on. The eviction runs first so a request that sees the new tag can
+    // never refill the cache with the old list.
+    @CacheEvict(cacheNames = CacheConfig.DOCTOR_DIRECTORY, allEntries = true, beforeInvocation = true)
+    public void onDoctorChanged(Doctor doctor) {
+        searchIndex.index(doctor);
+        responseVersions.bump(ResponseVersions.DOCTOR_DIRECTORY);
     }
 }
\ No newline at end of file
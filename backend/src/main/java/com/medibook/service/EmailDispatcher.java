@@ -0,0 +1,195 @@
+package com.medibook.service;
+
+import com.medibook.entity.EmailOutbox;
+import com.medibook.entity.EmailStatus;
+import com.medibook.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class EmailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${email.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    // How long a claimed batch stays invisible to other dispatchers while it is being sent
+    @Value("${email.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private Counter sentCounter;
+    private Counter retryCounter;
+    private Counter deadCounter;
+
+    // Queue depth is counted in the database at scrape time, so it covers every node
+    // writing to the outbox; the delivery counters are per node
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("email.outbox.pending", emailOutboxRepository, repo -> repo.countByStatus(EmailStatus.PENDING))
+                .description("Emails waiting in the outbox, including those backing off for a retry")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.dead", emailOutboxRepository, repo -> repo.countByStatus(EmailStatus.DEAD))
+                .description("Emails given up on")
+                .register(meterRegistry);
+        sentCounter = deliveryCounter("sent");
+        retryCounter = deliveryCounter("retry");
+        deadCounter = deliveryCounter("dead");
+    }
+
+    private Counter deliveryCounter(String outcome) {
+        return Counter.builder("email.outbox.deliveries")
+                .description("Delivery attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<EmailOutbox> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // Claims due emails by pushing their next attempt past the lease, so the
+    // DB connection is not held while talking to the SMTP server
+    private List<EmailOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = emailOutboxRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            for (EmailOutbox email : due) {
+                email.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return emailOutboxRepository.saveAll(due);
+        });
+    }
+
+    private void deliver(List<EmailOutbox> batch) {
+        if (mailSender == null) {
+            for (EmailOutbox email : batch) {
+                log.info("Email service not configured. Email to {}: {}", email.getRecipient(), email.getSubject());
+                email.setStatus(EmailStatus.DEAD);
+                email.setLastError("Mail sender not configured");
+            }
+            deadCounter.increment(batch.size());
+            store(batch);
+            return;
+        }
+
+        Map<SimpleMailMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            message.setFrom("noreply@medibookpro.com");
+            messages.put(message, email);
+        }
+
+        // One send call shares a single SMTP connection across the whole batch
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(messages.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                messages.keySet().forEach(message -> failures.put(message, e));
+            } else {
+                failures.putAll(e.getFailedMessages());
+            }
+        } catch (Exception e) {
+            messages.keySet().forEach(message -> failures.put(message, e));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<SimpleMailMessage, EmailOutbox> entry : messages.entrySet()) {
+            EmailOutbox email = entry.getValue();
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                email.setStatus(EmailStatus.SENT);
+                email.setSentAt(now);
+                email.setLastError(null);
+                sentCounter.increment();
+            } else {
+                scheduleRetry(email, failure, now);
+            }
+        }
+        store(batch);
+        log.debug("Email batch dispatched: {} sent, {} failed", batch.size() - failures.size(), failures.size());
+    }
+
+    // Copies delivery outcomes onto freshly loaded rows in one transaction: one select
+    // and one batched update, instead of a merge (select + update) per detached row
+    private void store(List<EmailOutbox> batch) {
+        Map<Long, EmailOutbox> outcomes = new HashMap<>();
+        for (EmailOutbox email : batch) {
+            outcomes.put(email.getId(), email);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (EmailOutbox row : emailOutboxRepository.findAllById(outcomes.keySet())) {
+                EmailOutbox outcome = outcomes.get(row.getId());
+                row.setStatus(outcome.getStatus());
+                row.setAttempts(outcome.getAttempts());
+                row.setNextAttemptAt(outcome.getNextAttemptAt());
+                row.setLastError(outcome.getLastError());
+                row.setSentAt(outcome.getSentAt());
+            }
+        });
+    }
+
+    private void scheduleRetry(EmailOutbox email, Exception failure, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String error = String.valueOf(failure.getMessage());
+        email.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (attempts >= maxAttempts) {
+            email.setStatus(EmailStatus.DEAD);
+            deadCounter.increment();
+            log.error("Email to {} moved to dead letter after {} attempts", email.getRecipient(), attempts);
+            return;
+        }
+        retryCounter.increment();
+        long backoff = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(attempts - 1, 30));
+        email.setNextAttemptAt(now.plusSeconds(backoff));
+    }
+}
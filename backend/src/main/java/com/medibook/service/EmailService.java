@@ -1,15 +1,17 @@
 package com.medibook.service;
 
+import com.medibook.entity.EmailOutbox;
+import com.medibook.repository.EmailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+// Emails are written to the outbox in the caller's transaction and
+// delivered later by EmailDispatcher, never on the request thread.
 @Service
 public class EmailService {
 
-    @Autowired(required = false)
-    private JavaMailSender mailSender;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
 
     public void sendAppointmentBooked(String patientEmail, String patientName, String doctorName, String date, String time) {
         sendEmail(
@@ -79,23 +81,31 @@ public class EmailService {
         );
     }
 
-    private void sendEmail(String to, String subject, String text) {
-        if (mailSender == null) {
-            System.out.println("Email service not configured. Email to " + to + ": " + subject);
-            return;
-        }
-
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-            message.setFrom("noreply@medibookpro.com");
+    public void sendWaitlistOffer(String patientEmail, String patientName, String doctorName, String date, String time,
+                                  String expiresAt) {
+        sendEmail(
+            patientEmail,
+            "A Slot Opened Up - MediBook Pro",
+            String.format(
+                "Dear %s,\n\n" +
+                "A slot you were waiting for is now free and is being held for you.\n\n" +
+                "Details:\n" +
+                "Doctor: Dr. %s\n" +
+                "Date: %s\n" +
+                "Time: %s\n\n" +
+                "Accept it before %s, after which it is offered to the next patient in line.\n\n" +
+                "Thank you,\n" +
+                "MediBook Pro Team",
+                patientName, doctorName, date, time, expiresAt
+            )
+        );
+    }
 
-            mailSender.send(message);
-            System.out.println("Email sent to: " + to);
-        } catch (Exception e) {
-            System.err.println("Failed to send email: " + e.getMessage());
-        }
+    private void sendEmail(String to, String subject, String text) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(text);
+        emailOutboxRepository.save(email);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,223 @@
+package com.medibook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+// In-process stand-in for a real gateway, for development and tests only: it is enabled
+// with payments.gateway=fake and never by default. It keeps orders and payments in memory,
+// signs checkouts and callbacks with a local secret (random per start unless
+// payments.fake.secret is set) and delivers callbacks to PaymentService on its own thread
+// after a delay, sometimes twice, the way real gateways retry webhooks.
+@Component
+@ConditionalOnProperty(name = "payments.gateway", havingValue = "fake")
+public class FakePaymentGateway implements PaymentGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(FakePaymentGateway.class);
+
+    public static final String SIGNATURE_HEADER = "X-Gateway-Signature";
+
+    @Autowired
+    @Lazy
+    private PaymentService paymentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${payments.fake.secret:}")
+    private String secret;
+
+    @Value("${payments.fake.webhook-delay-ms:200}")
+    private long webhookDelayMs;
+
+    // Share of callbacks delivered a second time
+    @Value("${payments.fake.duplicate-rate:0.2}")
+    private double duplicateRate;
+
+    @Value("${payments.fake.capture-failure-rate:0}")
+    private double captureFailureRate;
+
+    private final Map<String, Long> orderAmounts = new ConcurrentHashMap<>();
+    private final Map<String, FakePayment> payments = new ConcurrentHashMap<>();
+    private final Map<String, String> captureKeys = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService webhooks = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "fake-gateway-webhooks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (secret.isBlank()) {
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            secret = HexFormat.of().formatHex(random);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "fake";
+    }
+
+    @Override
+    public String createOrder(String receipt, long amount, String currency) {
+        String orderId = "order_" + UUID.randomUUID().toString().replace("-", "").substring(0, 14);
+        orderAmounts.put(orderId, amount);
+        return orderId;
+    }
+
+    // What the checkout widget does when the patient pays: the payment is authorized,
+    // the browser gets a signed payment id and the gateway posts payment.authorized
+    public Map<String, String> checkout(String orderId) {
+        Long amount = orderAmounts.get(orderId);
+        if (amount == null) {
+            throw new IllegalArgumentException("Unknown order " + orderId);
+        }
+        String paymentId = "pay_" + UUID.randomUUID().toString().replace("-", "").substring(0, 14);
+        payments.put(paymentId, new FakePayment(orderId, amount));
+        sendWebhook(PAYMENT_AUTHORIZED, orderId, paymentId, amount);
+        return Map.of("paymentId", paymentId, "orderId", orderId, "signature", sign(orderId + "|" + paymentId));
+    }
+
+    @Override
+    public boolean verifyCheckout(String orderId, String paymentId, String signature) {
+        return signature != null && matches(sign(orderId + "|" + paymentId), signature);
+    }
+
+    @Override
+    public String webhookSignatureHeader() {
+        return SIGNATURE_HEADER;
+    }
+
+    @Override
+    public boolean verifyWebhook(String payload, String signature) {
+        return signature != null && matches(sign(payload), signature);
+    }
+
+    @Override
+    public GatewayEvent parseWebhook(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            return new GatewayEvent(node.path("id").asText(), node.path("event").asText(),
+                    node.path("orderId").asText(null), node.path("paymentId").asText(null),
+                    node.hasNonNull("amount") ? node.get("amount").asLong() : null,
+                    node.path("reason").asText(null));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed webhook payload", e);
+        }
+    }
+
+    @Override
+    public void capture(String paymentId, long amount, String currency, String idempotencyKey) {
+        String earlier = captureKeys.putIfAbsent(idempotencyKey, paymentId);
+        if (earlier != null) {
+            return;
+        }
+        FakePayment payment = payments.get(paymentId);
+        try {
+            if (payment == null) {
+                throw new IllegalArgumentException("Unknown payment " + paymentId);
+            }
+            if (payment.amount != amount) {
+                throw new IllegalArgumentException("Capture amount " + amount + " does not match " + payment.amount);
+            }
+            if (ThreadLocalRandom.current().nextDouble() < captureFailureRate) {
+                throw new IllegalStateException("Gateway timeout (simulated)");
+            }
+        } catch (RuntimeException e) {
+            captureKeys.remove(idempotencyKey, paymentId);
+            throw e;
+        }
+        // Every capture under a new key is counted, so a second one shows up in captureCount
+        synchronized (payment) {
+            payment.captures++;
+            if (payment.captures > 1) {
+                throw new IllegalStateException("Payment " + paymentId + " is already captured");
+            }
+        }
+        sendWebhook(PAYMENT_CAPTURED, payment.orderId, paymentId, amount);
+    }
+
+    public int captureCount(String paymentId) {
+        FakePayment payment = payments.get(paymentId);
+        return payment == null ? 0 : payment.captures;
+    }
+
+    private void sendWebhook(String type, String orderId, String paymentId, long amount) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "evt_" + UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        event.put("event", type);
+        event.put("orderId", orderId);
+        event.put("paymentId", paymentId);
+        event.put("amount", amount);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        String signature = sign(payload);
+        int deliveries = ThreadLocalRandom.current().nextDouble() < duplicateRate ? 2 : 1;
+        for (int i = 0; i < deliveries; i++) {
+            webhooks.schedule(() -> deliver(payload, signature), webhookDelayMs * (i + 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(String payload, String signature) {
+        try {
+            paymentService.receiveWebhook(payload, signature);
+        } catch (Exception e) {
+            log.warn("Fake gateway webhook delivery failed: {}", e.getMessage());
+        }
+    }
+
+    private String sign(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static boolean matches(String expected, String actual) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        webhooks.shutdownNow();
+    }
+
+    private static class FakePayment {
+        final String orderId;
+        final long amount;
+        volatile int captures;
+
+        FakePayment(String orderId, long amount) {
+            this.orderId = orderId;
+            this.amount = amount;
+        }
+    }
+}
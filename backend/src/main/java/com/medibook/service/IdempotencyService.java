@@ -0,0 +1,244 @@
+package com.medibook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.IdempotencyRecord;
+import com.medibook.entity.IdempotencyStatus;
+import com.medibook.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Idempotency-Key support for write endpoints that clients retry. The first request
+// with a key runs; its response is kept in memory and in idempotency_keys, and every
+// later request with the key gets that response back without running the write again.
+// Duplicates arriving while the first is still running on this node wait for its
+// result; a duplicate on another node gets 409 until the owner finishes.
+// Keys are scoped by endpoint and by the authenticated caller, so one user's key can
+// never replay another user's response.
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.cache-size:10000}")
+    private long cacheSize;
+
+    // A claim older than this is taken to be left behind by a node that died mid-request
+    @Value("${idempotency.claim-timeout-seconds:60}")
+    private long claimTimeoutSeconds;
+
+    // How long a duplicate waits for the in-flight original on this node
+    @Value("${idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    private Cache<String, StoredResponse> completed;
+
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+    }
+
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", HEADER + " must be at most " + MAX_KEY_LENGTH + " characters"));
+        }
+        String storageKey = scope + ":" + sha256(caller() + ":" + key);
+        String requestHash = fingerprint(request);
+
+        StoredResponse stored = completed.getIfPresent(storageKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(storageKey, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            StoredResponse result = executeOnce(storageKey, requestHash, action);
+            mine.complete(result);
+            return result.original() != null ? result.original() : replay(result, requestHash);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storageKey, mine);
+        }
+    }
+
+    private StoredResponse executeOnce(String storageKey, String requestHash, Supplier<ResponseEntity<?>> action) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusHours(ttlHours);
+
+        Optional<IdempotencyRecord> existing = ReplicaRoutingDataSource.onPrimary(() -> repository.findById(storageKey));
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (record.getStatus() == IdempotencyStatus.COMPLETED && record.getExpiresAt().isAfter(now)) {
+                StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(),
+                        record.getResponseBody(), null);
+                completed.put(storageKey, stored);
+                return stored;
+            }
+            if (repository.reclaim(storageKey, requestHash, now, now.minusSeconds(claimTimeoutSeconds), expiresAt) == 0) {
+                return inProgress(requestHash);
+            }
+        } else {
+            try {
+                repository.insertClaim(storageKey, requestHash, now, expiresAt);
+            } catch (DataIntegrityViolationException e) {
+                return inProgress(requestHash);
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(storageKey);
+            throw e;
+        }
+
+        int status = response.getStatusCode().value();
+        StoredResponse stored = new StoredResponse(requestHash, status, serialize(response.getBody()), response);
+        if (!isFinal(status)) {
+            repository.release(storageKey);
+            return stored;
+        }
+        completed.put(storageKey, stored);
+        try {
+            repository.complete(storageKey, status, stored.body());
+        } catch (RuntimeException e) {
+            // The write itself went through; the claim times out and other nodes may then run it again
+            log.warn("Could not store idempotent response for {}: {}", storageKey, e.getMessage());
+        }
+        return stored;
+    }
+
+    // Successes and the handlers' explicit rejections of the request (400, 422) are answers.
+    // Anything else, such as 503 for a database or gateway outage, may go differently next
+    // time, so its claim is released instead
+    private static boolean isFinal(int status) {
+        return (status >= 200 && status < 300) || status == 400 || status == 422;
+    }
+
+    private static String caller() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return "anonymous";
+        }
+        return "user:" + auth.getName();
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return inProgress(null);
+        } catch (ExecutionException | TimeoutException e) {
+            return inProgress(null);
+        }
+    }
+
+    private StoredResponse inProgress(String requestHash) {
+        return new StoredResponse(requestHash, 409,
+                serialize(Map.of("error", "A request with this " + HEADER + " is still being processed")), null);
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (stored.requestHash() != null && !stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", HEADER + " was already used for a different request"));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (stored.status() == 409) {
+            builder.header(HttpHeaders.RETRY_AFTER, "1");
+        } else {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        return builder.body(stored.body());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = repository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        return sha256(serialize(request));
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + body, e);
+        }
+    }
+
+    // original is the live response for the request that ran; replays are built from body
+    private record StoredResponse(String requestHash, int status, String body, ResponseEntity<?> original) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.medibook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs BCrypt on a small fixed pool instead of on request threads, so a login or
+// registration storm can use at most auth.hashing.threads cores and leaves the rest
+// to booking traffic. Work that would queue longer than auth.hashing.max-queue-ms is
+// refused with BusyException rather than answered late.
+@Service
+public class PasswordHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 means half the available cores
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-size:64}")
+    private int queueSize;
+
+    @Value("${auth.hashing.max-queue-ms:1000}")
+    private long maxQueueMs;
+
+    // Must match the strength PasswordEncoder is built with
+    @Value("${auth.bcrypt.strength:10}")
+    private int strength;
+
+    private ThreadPoolExecutor executor;
+    private Counter rejectedCounter;
+    private String dummyHash;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("auth.hashing.queue", executor, e -> e.getQueue().size())
+                .description("Password hashing jobs waiting for a thread")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("auth.hashing.rejected")
+                .description("Password hashing jobs refused because the queue was full or too slow")
+                .register(meterRegistry);
+        dummyHash = passwordEncoder.encode("unused-" + System.nanoTime());
+        log.info("Password hashing on {} threads, BCrypt strength {}", poolSize, strength);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // True for hashes made with a different cost than the one configured now
+    public boolean needsRehash(String encodedPassword) {
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword == null ? "" : encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    // Same BCrypt work as checking a real hash, for unknown emails, so response time
+    // does not tell which accounts exist
+    public void matchesNothing(String rawPassword) {
+        run(() -> passwordEncoder.matches(rawPassword, dummyHash));
+    }
+
+    // For rehashing after login: skipped (the future is cancelled) when the pool is
+    // half full, and simply tried again on a later login
+    public CompletableFuture<String> encodeWhenIdle(String rawPassword) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        if (executor.getQueue().size() > queueSize / 2) {
+            result.cancel(false);
+            return result;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(passwordEncoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.cancel(false);
+        }
+        return result;
+    }
+
+    private <T> T run(Callable<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (System.nanoTime() - enqueuedAt > TimeUnit.MILLISECONDS.toNanos(maxQueueMs)) {
+                    throw new BusyException();
+                }
+                return work.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new BusyException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusyException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusyException busy) {
+                rejectedCounter.increment();
+                throw busy;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Answered with 503 and Retry-After; the request did no password work
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Too many sign-in requests right now, please retry shortly");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.medibook.service;
+
+// What the payments subsystem needs from a card/UPI gateway. Implementations turn
+// their provider's callbacks into GatewayEvent so PaymentService never sees
+// provider-specific payloads.
+public interface PaymentGateway {
+
+    String PAYMENT_AUTHORIZED = "payment.authorized";
+    String PAYMENT_CAPTURED = "payment.captured";
+    String PAYMENT_FAILED = "payment.failed";
+    String REFUND_PROCESSED = "refund.processed";
+
+    String name();
+
+    // Returns the gateway's order id; amount is in the smallest currency unit
+    String createOrder(String receipt, long amount, String currency);
+
+    // Checks the signature the checkout widget hands the browser after payment
+    boolean verifyCheckout(String orderId, String paymentId, String signature);
+
+    String webhookSignatureHeader();
+
+    boolean verifyWebhook(String payload, String signature);
+
+    GatewayEvent parseWebhook(String payload);
+
+    // Must be safe to repeat with the same idempotency key: the gateway captures once
+    // and answers every repeat as a success
+    void capture(String paymentId, long amount, String currency, String idempotencyKey);
+
+    // The provider could not be reached or failed the call. Worth retrying: at worst an
+    // order it opened without answering is left unpaid on its side
+    class UnavailableException extends RuntimeException {
+        public UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // type is one of the constants above, or the provider's own name for events we ignore
+    record GatewayEvent(String id, String type, String orderId, String paymentId, Long amount, String reason) {
+    }
+}
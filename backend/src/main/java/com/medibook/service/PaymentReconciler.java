@@ -0,0 +1,251 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.Payment;
+import com.medibook.entity.PaymentEvent;
+import com.medibook.entity.PaymentEventStatus;
+import com.medibook.entity.PaymentStatus;
+import com.medibook.repository.PaymentEventRepository;
+import com.medibook.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Applies stored gateway callbacks to payments in batches and captures authorized
+// payments. Runs on the scheduler, so webhook bursts only grow payment_events and
+// never hold request threads; several nodes can run it side by side.
+@Service
+public class PaymentReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentReconciler.class);
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+
+    // PaymentService fails startup when there is none
+    @Autowired(required = false)
+    private PaymentGateway gateway;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payments.reconcile.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payments.reconcile.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payments.reconcile.initial-backoff-seconds:5}")
+    private long initialBackoffSeconds;
+
+    @Value("${payments.reconcile.max-backoff-seconds:600}")
+    private long maxBackoffSeconds;
+
+    // How long a claimed batch stays invisible to other nodes while it is applied
+    @Value("${payments.reconcile.lease-seconds:120}")
+    private long leaseSeconds;
+
+    // A capture claim older than this is retried; the gateway call is idempotent per payment
+    @Value("${payments.capture.lease-seconds:60}")
+    private long captureLeaseSeconds;
+
+    @Value("${payments.capture.max-attempts:5}")
+    private int maxCaptureAttempts;
+
+    private final Map<String, Counter> eventCounters = new HashMap<>();
+    private final Map<String, Counter> captureCounters = new HashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("payments.events.pending", paymentEventRepository, repo -> repo.countByStatus(PaymentEventStatus.PENDING))
+                .description("Gateway callbacks waiting to be applied")
+                .register(meterRegistry);
+        for (String outcome : List.of("processed", "ignored", "retry", "dead")) {
+            eventCounters.put(outcome, Counter.builder("payments.events.applied")
+                    .description("Gateway callbacks handled by outcome")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        for (String outcome : List.of("captured", "retry", "failed")) {
+            captureCounters.put(outcome, Counter.builder("payments.captures")
+                    .description("Capture calls by outcome")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payments.reconcile.poll-interval-ms:1000}")
+    public void reconcile() {
+        List<PaymentEvent> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                applyBatch(batch);
+            }
+        } while (batch.size() == batchSize);
+        captureAuthorized();
+    }
+
+    private List<PaymentEvent> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PaymentEvent> due = paymentEventRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            for (PaymentEvent event : due) {
+                event.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return paymentEventRepository.saveAll(due);
+        });
+    }
+
+    // The whole batch goes in one transaction, so each payment transition commits together
+    // with the event that caused it. If that fails, events are retried one by one so a
+    // single bad callback cannot hold the rest back.
+    private void applyBatch(List<PaymentEvent> batch) {
+        List<Long> ids = batch.stream().map(PaymentEvent::getId).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(ids));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Payment event batch failed, applying events one at a time: {}", e.getMessage());
+        }
+        for (PaymentEvent event : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(List.of(event.getId())));
+            } catch (RuntimeException e) {
+                transactionTemplate.executeWithoutResult(status ->
+                        paymentEventRepository.findById(event.getId()).ifPresent(row -> scheduleRetry(row, e)));
+            }
+        }
+    }
+
+    private void apply(List<Long> ids) {
+        List<PaymentEvent> events = new ArrayList<>(paymentEventRepository.findAllById(ids));
+        events.sort(Comparator.comparing(PaymentEvent::getId));
+        Set<String> orderIds = new HashSet<>();
+        for (PaymentEvent event : events) {
+            if (event.getOrderId() != null) {
+                orderIds.add(event.getOrderId());
+            }
+        }
+        Map<String, Payment> payments = new HashMap<>();
+        for (Payment payment : paymentRepository.findByOrderIdIn(orderIds)) {
+            payments.put(payment.getOrderId(), payment);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (PaymentEvent event : events) {
+            if (event.getStatus() == PaymentEventStatus.PENDING) {
+                applyOne(event, payments.get(event.getOrderId()), now);
+            }
+        }
+    }
+
+    private void applyOne(PaymentEvent event, Payment payment, LocalDateTime now) {
+        if (payment == null) {
+            throw new IllegalStateException("No payment for order " + event.getOrderId());
+        }
+        String type = event.getType();
+        if (event.getAmount() != null && !event.getAmount().equals(payment.getAmount())
+                && !PaymentGateway.REFUND_PROCESSED.equals(type)) {
+            finish(event, PaymentEventStatus.DEAD, "Amount " + event.getAmount() + " does not match order amount " + payment.getAmount(), now);
+            return;
+        }
+        String paymentId = event.getGatewayPaymentId();
+        int changed;
+        switch (type) {
+            case PaymentGateway.PAYMENT_AUTHORIZED ->
+                    changed = paymentRepository.markAuthorized(payment.getId(), paymentId, now, PaymentStatus.AUTHORIZED);
+            case PaymentGateway.PAYMENT_CAPTURED ->
+                    changed = paymentRepository.markCaptured(payment.getId(), paymentId, now, PaymentStatus.CAPTURED);
+            case PaymentGateway.PAYMENT_FAILED ->
+                    changed = paymentRepository.markFailed(payment.getId(), paymentId,
+                            event.getReason() != null ? event.getReason() : "Declined by gateway", now, PaymentStatus.FAILED);
+            case PaymentGateway.REFUND_PROCESSED ->
+                    changed = paymentRepository.markRefunded(payment.getId(), now, PaymentStatus.REFUNDED);
+            default -> {
+                finish(event, PaymentEventStatus.IGNORED, "Unhandled event type", now);
+                return;
+            }
+        }
+        // Redeliveries and callbacks that arrive after a later state land here
+        if (changed == 0) {
+            finish(event, PaymentEventStatus.IGNORED, "No transition from the payment's current status", now);
+        } else {
+            finish(event, PaymentEventStatus.PROCESSED, null, now);
+        }
+    }
+
+    private void finish(PaymentEvent event, PaymentEventStatus status, String note, LocalDateTime now) {
+        event.setStatus(status);
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(note);
+        event.setProcessedAt(now);
+        eventCounters.get(status.name().toLowerCase()).increment();
+    }
+
+    private void scheduleRetry(PaymentEvent event, Exception failure) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String error = String.valueOf(failure.getMessage());
+        event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (attempts >= maxAttempts) {
+            event.setStatus(PaymentEventStatus.DEAD);
+            eventCounters.get("dead").increment();
+            log.error("Payment event {} moved to dead letter after {} attempts", event.getEventKey(), attempts);
+            return;
+        }
+        eventCounters.get("retry").increment();
+        long backoff = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(attempts - 1, 30));
+        event.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+    }
+
+    // Capture runs outside any transaction. The claim update makes one worker the owner
+    // of the call, and the idempotency key makes a retry after a lost answer or an
+    // expired claim a no-op at the gateway instead of a second capture.
+    private void captureAuthorized() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusSeconds(captureLeaseSeconds);
+        List<Payment> due = ReplicaRoutingDataSource.onPrimary(() ->
+                paymentRepository.findCapturable(staleBefore, PageRequest.of(0, batchSize)));
+        for (Payment payment : due) {
+            if (paymentRepository.claimCapture(payment.getId(), now, staleBefore) == 0) {
+                continue;
+            }
+            try {
+                gateway.capture(payment.getGatewayPaymentId(), payment.getAmount(), payment.getCurrency(),
+                        "capture-" + payment.getId());
+                paymentRepository.markCaptured(payment.getId(), payment.getGatewayPaymentId(), LocalDateTime.now(), PaymentStatus.CAPTURED);
+                captureCounters.get("captured").increment();
+            } catch (RuntimeException e) {
+                String error = String.valueOf(e.getMessage());
+                error = error.length() > 1000 ? error.substring(0, 1000) : error;
+                if (payment.getCaptureAttempts() + 1 >= maxCaptureAttempts) {
+                    paymentRepository.markFailed(payment.getId(), payment.getGatewayPaymentId(),
+                            "Capture failed: " + error, LocalDateTime.now(), PaymentStatus.FAILED);
+                    captureCounters.get("failed").increment();
+                    log.error("Giving up capturing payment {}: {}", payment.getId(), error);
+                } else {
+                    paymentRepository.recordError(payment.getId(), error, LocalDateTime.now());
+                    captureCounters.get("retry").increment();
+                }
+            }
+        }
+    }
+}
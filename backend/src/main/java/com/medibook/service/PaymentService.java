@@ -0,0 +1,145 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.Appointment;
+import com.medibook.entity.AppointmentStatus;
+import com.medibook.entity.Payment;
+import com.medibook.entity.PaymentEvent;
+import com.medibook.entity.PaymentStatus;
+import com.medibook.repository.AppointmentRepository;
+import com.medibook.repository.PaymentEventRepository;
+import com.medibook.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class PaymentService {
+
+    public enum WebhookResult { ACCEPTED, DUPLICATE, REJECTED }
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentEventRepository paymentEventRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    // Optional here only so a missing one fails startup with a clear message below
+    @Autowired(required = false)
+    private PaymentGateway gateway;
+
+    @Value("${payments.currency:INR}")
+    private String currency;
+
+    @PostConstruct
+    public void checkGateway() {
+        if (gateway == null) {
+            throw new IllegalStateException("No payment gateway is configured. Set payments.gateway; "
+                    + "payments.gateway=fake runs the in-process gateway for development and tests");
+        }
+    }
+
+    // The amount is the appointment's fee as booked, never what the browser sends.
+    // Pressing Pay again while an order is open returns that order. The appointment row
+    // stays locked until the new order is stored, so two requests racing on any nodes
+    // open one gateway order and the later one gets it back.
+    @Transactional
+    public Payment createOrder(Long appointmentId) {
+        Appointment apt = appointmentRepository.lockById(appointmentId)
+                .orElseThrow(() -> new RuntimeException("Appointment not found"));
+        if (apt.getStatus() == AppointmentStatus.CANCELLED) {
+            throw new RuntimeException("Cannot pay for a cancelled appointment");
+        }
+        List<Payment> open = paymentRepository.findOpenByAppointmentId(appointmentId);
+        if (!open.isEmpty()) {
+            return open.get(0);
+        }
+        if (apt.getFee() == null || apt.getFee().signum() <= 0) {
+            throw new RuntimeException("Appointment has no fee to pay");
+        }
+        long amount = apt.getFee().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+
+        Payment payment = new Payment();
+        payment.setAppointment(apt);
+        payment.setGateway(gateway.name());
+        try {
+            payment.setOrderId(gateway.createOrder("apt_" + appointmentId, amount, currency));
+        } catch (RuntimeException e) {
+            throw new PaymentGateway.UnavailableException("Payment gateway is unavailable, please retry", e);
+        }
+        payment.setAmount(amount);
+        payment.setCurrency(currency);
+        return paymentRepository.save(payment);
+    }
+
+    // Called with what the checkout widget returned to the browser. Authorizes the
+    // payment straight away; capture is left to PaymentReconciler either way.
+    public Payment verify(String orderId, String gatewayPaymentId, String signature) {
+        Payment payment = findByOrderId(orderId);
+        if (!gateway.verifyCheckout(orderId, gatewayPaymentId, signature)) {
+            throw new RuntimeException("Payment signature does not match");
+        }
+        if (payment.getStatus() == PaymentStatus.CREATED) {
+            paymentRepository.markAuthorized(payment.getId(), gatewayPaymentId, LocalDateTime.now(), PaymentStatus.AUTHORIZED);
+            payment = findByOrderId(orderId);
+        }
+        if (payment.getGatewayPaymentId() != null && !payment.getGatewayPaymentId().equals(gatewayPaymentId)) {
+            throw new RuntimeException("Order was paid with a different payment");
+        }
+        return payment;
+    }
+
+    // Only checks the signature and stores the event, so a burst of callbacks costs one
+    // insert each and never waits on payment rows or the gateway
+    public WebhookResult receiveWebhook(String payload, String signature) {
+        if (!gateway.verifyWebhook(payload, signature)) {
+            return WebhookResult.REJECTED;
+        }
+        PaymentGateway.GatewayEvent event = gateway.parseWebhook(payload);
+        if (event.id() == null || event.id().isBlank()) {
+            throw new RuntimeException("Webhook has no event id");
+        }
+        String eventKey = gateway.name() + ":" + event.id();
+        // Most duplicates are plain redeliveries; the unique key still settles concurrent ones
+        if (paymentEventRepository.existsByEventKey(eventKey)) {
+            return WebhookResult.DUPLICATE;
+        }
+        PaymentEvent row = new PaymentEvent();
+        row.setEventKey(eventKey);
+        row.setType(event.type());
+        row.setOrderId(event.orderId());
+        row.setGatewayPaymentId(event.paymentId());
+        row.setAmount(event.amount());
+        row.setPayload(payload.length() > 4000 ? null : payload);
+        row.setReason(event.reason() != null && event.reason().length() > 500 ? event.reason().substring(0, 500) : event.reason());
+        try {
+            paymentEventRepository.saveAndFlush(row);
+            return WebhookResult.ACCEPTED;
+        } catch (DataIntegrityViolationException e) {
+            return WebhookResult.DUPLICATE;
+        }
+    }
+
+    public String webhookSignatureHeader() {
+        return gateway.webhookSignatureHeader();
+    }
+
+    public Payment findByOrderId(String orderId) {
+        return ReplicaRoutingDataSource.onPrimary(() -> paymentRepository.findByOrderId(orderId))
+                .orElseThrow(() -> new RuntimeException("Payment order not found"));
+    }
+
+    public List<Payment> findByAppointment(Long appointmentId) {
+        return paymentRepository.findByAppointmentId(appointmentId);
+    }
+}
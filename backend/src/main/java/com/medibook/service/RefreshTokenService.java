@@ -0,0 +1,172 @@
+package com.medibook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.RefreshToken;
+import com.medibook.entity.User;
+import com.medibook.repository.RefreshTokenRepository;
+import com.medibook.security.JwtUtil;
+import com.medibook.security.TokenRevocationList;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+// Sessions of short-lived access tokens and rotating refresh tokens. Each refresh token
+// can be exchanged once; presenting it again after the reuse grace window means it
+// leaked, so the whole session is revoked, access tokens included.
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${jwt.refresh-expiration:1209600000}") // 14 days in milliseconds
+    private long refreshExpirationMs;
+
+    // Browser tabs sharing one refresh token may all refresh when the access token runs out
+    @Value("${jwt.refresh.reuse-grace-seconds:10}")
+    private long reuseGraceSeconds;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Pairs handed out during the grace window, by the id of the token exchanged for them
+    private Cache<Long, IssuedTokens> recentRotations;
+
+    // Disabled users are signed out from UserChangeListener's after-commit callback, where
+    // the finished transaction is still bound to the thread, so always start a new one
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        recentRotations = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(reuseGraceSeconds))
+                .build();
+    }
+
+    public record IssuedTokens(User user, String accessToken, String refreshToken, long expiresInSeconds) {
+    }
+
+    public IssuedTokens startSession(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    public IssuedTokens rotate(String rawToken) {
+        RefreshToken token = ReplicaRoutingDataSource.onPrimary(() -> refreshTokenRepository.findWithUserByTokenHash(hash(rawToken)))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        LocalDateTime now = LocalDateTime.now();
+        if (token.getRevokedAt() != null || token.getExpiresAt().isBefore(now)) {
+            throw new BadCredentialsException("Refresh token expired or revoked");
+        }
+        User user = token.getUser();
+        if (!user.isEnabled()) {
+            revokeSession(token.getSessionId());
+            throw new DisabledException("User is disabled");
+        }
+        if (token.getUsedAt() == null && refreshTokenRepository.markUsed(token.getId(), now) == 1) {
+            IssuedTokens issued = issue(user, token.getSessionId());
+            recentRotations.put(token.getId(), issued);
+            return issued;
+        }
+
+        // Exchanged already. Within the grace window this is another tab of the same browser:
+        // it gets the pair the first exchange produced, or a new pair in the same session when
+        // that exchange ran on another node or is still being issued
+        RefreshToken used = token.getUsedAt() != null ? token
+                : ReplicaRoutingDataSource.onPrimary(() -> refreshTokenRepository.findById(token.getId())).orElse(token);
+        if (used.getRevokedAt() == null && used.getUsedAt() != null
+                && used.getUsedAt().isAfter(now.minusSeconds(reuseGraceSeconds))) {
+            IssuedTokens earlier = recentRotations.getIfPresent(token.getId());
+            return earlier != null ? earlier : issue(user, token.getSessionId());
+        }
+        revokeSession(token.getSessionId());
+        throw new BadCredentialsException("Refresh token was already used");
+    }
+
+    public void logout(String rawToken) {
+        ReplicaRoutingDataSource.onPrimary(() -> refreshTokenRepository.findWithUserByTokenHash(hash(rawToken)))
+                .ifPresent(token -> revokeSession(token.getSessionId()));
+    }
+
+    // Ends every session of the user, e.g. when the account is disabled
+    public void revokeAllSessions(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> sessionIds = ReplicaRoutingDataSource.onPrimary(() -> refreshTokenRepository.findLiveSessionIds(userId, now));
+            refreshTokenRepository.revokeUser(userId, now);
+            revocationList.revoke(sessionIds);
+        });
+    }
+
+    private void revokeSession(String sessionId) {
+        refreshTokenRepository.revokeSession(sessionId, LocalDateTime.now());
+        revocationList.revoke(List.of(sessionId));
+    }
+
+    private IssuedTokens issue(User user, String sessionId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setUser(user);
+        token.setSessionId(sessionId);
+        token.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationMs * 1_000_000));
+        refreshTokenRepository.save(token);
+
+        String accessToken = jwtUtil.generateAccessToken(user.getEmail(), user.getRole().name(), sessionId);
+        return new IssuedTokens(user, accessToken, rawToken, jwtUtil.getAccessExpirationMs() / 1000);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.medibook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.repository.AppointmentRepository;
+import com.medibook.repository.ResponseVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Change counters behind the ETags of read-heavy list endpoints. The counters live in
+// the response_versions table and are bumped inside the write transaction, so every
+// node hands out the same tag for the same data. Reads go through a short-lived local
+// cache: another node may answer 304 for at most response.versions.cache-ttl-ms after
+// a change, the node that made the change stops as soon as it commits.
+@Component
+public class ResponseVersions {
+
+    // Doctor listings (all, verified, by specialization, pending verification)
+    public static final String DOCTOR_DIRECTORY = "doctors";
+
+    private static final Version UNCHANGED = new Version(0, 0);
+
+    @Autowired
+    private ResponseVersionRepository versionRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private final Cache<String, Version> versions;
+
+    // With read replicas a fresh tag could be paired with a body read from a replica that
+    // has not caught up yet, so no tag is handed out until the change has had time to replicate
+    private final long settleMs;
+
+    public ResponseVersions(@Value("${datasource.replica.urls:}") String replicaUrls,
+                            @Value("${datasource.replica.max-lag-ms:10000}") long maxLagMs,
+                            @Value("${response.versions.cache-ttl-ms:1000}") long cacheTtlMs) {
+        this.settleMs = replicaUrls.isBlank() ? 0 : maxLagMs;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .build();
+    }
+
+    public static String doctorAppointments(Long doctorId) {
+        return "doctor:" + doctorId;
+    }
+
+    public static String doctorUserAppointments(Long userId) {
+        return "doctorUser:" + userId;
+    }
+
+    public static String patientUserAppointments(Long userId) {
+        return "patientUser:" + userId;
+    }
+
+    // Inside a transaction the counters are written just before it commits, once per key and
+    // in key order, so writers touching overlapping keys cannot deadlock on the rows
+    public void bump(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(key));
+            versions.invalidate(key);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> keys = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(keys);
+                }
+
+                @Override
+                public void afterCommit() {
+                    versions.invalidateAll(keys);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ResponseVersions.this);
+                }
+            });
+            pending = keys;
+        }
+        pending.add(key);
+    }
+
+    public void appointmentChanged(Long doctorId, Long doctorUserId, Long patientUserId) {
+        bump(doctorAppointments(doctorId));
+        bump(doctorUserAppointments(doctorUserId));
+        bump(patientUserAppointments(patientUserId));
+    }
+
+    // A patient's name and contact details appear in the listings of the doctors they booked.
+    // Read on the primary so a doctor booked moments ago is not missed.
+    public void patientProfileChanged(Long patientId) {
+        for (Object[] row : ReplicaRoutingDataSource.onPrimary(() -> appointmentRepository.findDoctorKeysForPatient(patientId))) {
+            bump(doctorAppointments((Long) row[0]));
+            bump(doctorUserAppointments((Long) row[1]));
+        }
+    }
+
+    // A doctor's name, email and specialization appear in the listings of their patients
+    public void doctorProfileChanged(Long doctorId) {
+        for (Long patientUserId : ReplicaRoutingDataSource.onPrimary(() -> appointmentRepository.findPatientUserIdsForDoctor(doctorId))) {
+            bump(patientUserAppointments(patientUserId));
+        }
+    }
+
+    // Weak tag over the given counters; variant covers whatever else shapes the body, such
+    // as the query string. Null while one of the counters is still settling.
+    public String etag(String variant, String... keys) {
+        StringBuilder tag = new StringBuilder("W/\"v");
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            Version version = versions.get(key, this::load);
+            if (now - version.changedAt() < settleMs) {
+                return null;
+            }
+            tag.append('-').append(version.counter());
+        }
+        if (variant != null && !variant.isEmpty()) {
+            tag.append('-').append(Integer.toHexString(variant.hashCode()));
+        }
+        return tag.append('"').toString();
+    }
+
+    private void write(Collection<String> keys) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String key : keys) {
+            if (versionRepository.increment(key, now) == 0) {
+                versionRepository.insertIfAbsent(key, now);
+                versionRepository.increment(key, now);
+            }
+        }
+    }
+
+    private Version load(String key) {
+        return ReplicaRoutingDataSource.onPrimary(() -> versionRepository.findById(key))
+                .map(v -> new Version(v.getCounter(), v.getChangedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+                .orElse(UNCHANGED);
+    }
+
+    private record Version(long counter, long changedAt) {
+    }
+}
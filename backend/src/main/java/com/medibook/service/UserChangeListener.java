@@ -0,0 +1,40 @@
+package com.medibook.service;
+
+import com.medibook.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// JPA listener on User; drops cached auth state whenever a user row changes
+// (disabled, role changed, deleted) so the JWT filters pick it up right away.
+// Disabling a user also ends their sessions, once the change has committed.
+@Component
+public class UserChangeListener {
+
+    @Autowired
+    @Lazy
+    private CachedUserDetailsService cachedUserDetailsService;
+
+    @Autowired
+    @Lazy
+    private RefreshTokenService refreshTokenService;
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(User user) {
+        cachedUserDetailsService.evict(user.getEmail());
+        if (!user.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Long userId = user.getId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshTokenService.revokeAllSessions(userId);
+                }
+            });
+        }
+    }
+}
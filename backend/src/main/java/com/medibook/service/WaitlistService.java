@@ -0,0 +1,312 @@
+package com.medibook.service;
+
+import com.medibook.config.ReplicaRoutingDataSource;
+import com.medibook.entity.*;
+import com.medibook.repository.DoctorRepository;
+import com.medibook.repository.PatientRepository;
+import com.medibook.repository.WaitlistEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per doctor-day waitlists. A freed slot is held in the availability calendar and
+// offered to the first waiting patient whose window fits; if the offer is declined
+// or its hold runs out, the same slot moves on to the next patient in line.
+// The line itself lives in the database: the next patient is picked with
+// SELECT ... FOR UPDATE SKIP LOCKED, so a patient who joined through any node is
+// offered slots freed on any other. The doctor's booking lock keeps offers,
+// acceptances and direct bookings from interleaving on this node's calendar; the
+// conditional status updates keep each offer single-shot across nodes.
+@Service
+public class WaitlistService {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorBookingLocks bookingLocks;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${waitlist.offer-ttl-minutes:15}")
+    private int offerTtlMinutes;
+
+    // Offers are made from cancellation after-commit callbacks, where the finished
+    // transaction is still bound to the thread, so always start a new one
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Runs after the availability calendar is seeded so held slots can be marked again
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void restore() {
+        ReplicaRoutingDataSource.runOnPrimary(() -> {
+            List<Object[]> held = waitlistRepository.findHeldSlots(LocalDateTime.now());
+            for (Object[] row : held) {
+                availabilityService.markBooked((Long) row[0], (LocalDate) row[1], (LocalTime) row[2]);
+            }
+            log.info("Waitlist restored with {} open offers", held.size());
+        });
+    }
+
+    public WaitlistEntry join(Long userId, Long doctorId, LocalDate date, LocalTime earliest, LocalTime latest, String reason) {
+        if (date == null) {
+            throw new IllegalArgumentException("date is required");
+        }
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today) || date.isAfter(today.plusDays(availabilityService.getHorizonDays()))) {
+            throw new IllegalArgumentException("Waitlists are open for the next " + availabilityService.getHorizonDays() + " days");
+        }
+        if (earliest != null && latest != null && latest.isBefore(earliest)) {
+            throw new IllegalArgumentException("latestTime must not be before earliestTime");
+        }
+
+        Patient patient = patientRepository.findByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Patient profile not found for user ID: " + userId));
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found: " + doctorId));
+        for (Map<String, Object> day : availabilityService.getAvailability(doctorId, date, date)) {
+            for (Object slot : (List<?>) day.get("availableSlots")) {
+                LocalTime time = LocalTime.parse(slot.toString());
+                if ((earliest == null || !time.isBefore(earliest)) && (latest == null || !time.isAfter(latest))) {
+                    throw new IllegalArgumentException("Slots are still free on " + date + ", book one directly");
+                }
+            }
+        }
+        if (waitlistRepository.existsActive(patient.getId(), doctorId, date)) {
+            throw new IllegalArgumentException("Already on this doctor's waitlist for " + date);
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setPatient(patient);
+        entry.setDoctor(doctor);
+        entry.setRequestedDate(date);
+        entry.setEarliestTime(earliest);
+        entry.setLatestTime(latest);
+        entry.setReason(reason);
+        return waitlistRepository.save(entry);
+    }
+
+    // Called once a cancellation has committed, while its slot is still marked booked. Under
+    // the doctor's lock that booked bit becomes the hold of an offer to the next waiting
+    // patient, so a direct booking can never take the slot in between; the slot is only
+    // released when nobody on the waitlist can take it.
+    public void onSlotFreed(Long doctorId, LocalDate date, LocalTime time) {
+        if (doctorId == null || date == null || time == null) {
+            return;
+        }
+        ReentrantLock lock = bookingLocks.forDoctor(doctorId);
+        lock.lock();
+        try {
+            // Cheap check before offering; offerHeldSlot picks the patient under a row lock
+            if (availabilityService.isScheduled(doctorId, date, time)
+                    && ReplicaRoutingDataSource.onPrimary(() -> waitlistRepository.existsWaitingFor(doctorId, date, time))) {
+                // Another node's calendar may not have caught up with the cancelled booking yet
+                availabilityService.markBooked(doctorId, date, time);
+                passOn(doctorId, date, time);
+            } else {
+                availabilityService.release(doctorId, date, time);
+            }
+        } catch (RuntimeException e) {
+            availabilityService.release(doctorId, date, time);
+            log.warn("Waitlist offer for doctor {} on {} {} failed: {}", doctorId, date, time, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Appointment accept(Long entryId) {
+        WaitlistEntry entry = ReplicaRoutingDataSource.onPrimary(() -> waitlistRepository.findById(entryId))
+                .orElseThrow(() -> new RuntimeException("Waitlist entry not found"));
+        Long doctorId = entry.getDoctor().getId();
+
+        ReentrantLock lock = bookingLocks.forDoctor(doctorId);
+        lock.lock();
+        try {
+            return transactionTemplate.execute(status -> {
+                if (waitlistRepository.markAccepted(entryId, LocalDateTime.now(), WaitlistStatus.ACCEPTED) == 0) {
+                    throw new RuntimeException("This offer is no longer available");
+                }
+                WaitlistEntry accepted = waitlistRepository.findById(entryId).orElseThrow();
+                Appointment apt = appointmentService.bookHeldSlot(accepted.getPatient().getId(), doctorId,
+                        accepted.getRequestedDate(), accepted.getOfferedTime(), accepted.getReason());
+                waitlistRepository.linkAppointment(entryId, apt.getId());
+                return apt;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Booked on another node while on offer here; the slot stays taken and the patient keeps their place
+            waitlistRepository.transition(entryId, WaitlistStatus.OFFERED, WaitlistStatus.WAITING);
+            throw new RuntimeException("The offered slot was taken in the meantime, you are back on the waitlist");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void decline(Long entryId) {
+        closeOffer(entryId, WaitlistStatus.DECLINED, "This offer is no longer available");
+    }
+
+    // Leaves the waitlist; an open offer is passed on to the next patient
+    public void leave(Long entryId) {
+        WaitlistEntry entry = ReplicaRoutingDataSource.onPrimary(() -> waitlistRepository.findById(entryId))
+                .orElseThrow(() -> new RuntimeException("Waitlist entry not found"));
+        if (entry.getStatus() == WaitlistStatus.OFFERED) {
+            closeOffer(entryId, WaitlistStatus.CANCELLED, "Waitlist entry is no longer active");
+            return;
+        }
+        if (waitlistRepository.transition(entryId, WaitlistStatus.WAITING, WaitlistStatus.CANCELLED) == 0) {
+            throw new RuntimeException("Waitlist entry is no longer active");
+        }
+    }
+
+    public List<Map<String, Object>> getActiveEntries(Long userId) {
+        Optional<Long> patientId = patientRepository.findIdByUserId(userId);
+        if (patientId.isEmpty()) {
+            return List.of();
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (WaitlistEntry entry : waitlistRepository.findActiveByPatientId(patientId.get())) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", entry.getId());
+            row.put("doctorId", entry.getDoctor().getId());
+            row.put("doctorName", entry.getDoctor().getUser().getName());
+            row.put("date", entry.getRequestedDate());
+            row.put("earliestTime", entry.getEarliestTime());
+            row.put("latestTime", entry.getLatestTime());
+            row.put("status", entry.getStatus());
+            row.put("offeredTime", entry.getOfferedTime());
+            row.put("offerExpiresAt", entry.getOfferExpiresAt());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Passes offers whose hold ran out to the next patient and retires waitlists for past days
+    @Scheduled(fixedDelayString = "${waitlist.expiry-check-ms:15000}")
+    public void expireOffers() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> expired = ReplicaRoutingDataSource.onPrimary(() -> waitlistRepository.findExpiredOffers(now));
+        for (Object[] row : expired) {
+            Long entryId = (Long) row[0];
+            Long doctorId = (Long) row[1];
+            ReentrantLock lock = bookingLocks.forDoctor(doctorId);
+            lock.lock();
+            try {
+                if (waitlistRepository.markExpired(entryId, now, WaitlistStatus.EXPIRED) == 1) {
+                    passOn(doctorId, (LocalDate) row[2], (LocalTime) row[3]);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Expiring waitlist offer {} failed: {}", entryId, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        int stale = waitlistRepository.expireWaitingBefore(today, WaitlistStatus.EXPIRED);
+        if (!expired.isEmpty() || stale > 0) {
+            log.info("Waitlist: {} offers expired, {} entries for past days closed", expired.size(), stale);
+        }
+    }
+
+    private void closeOffer(Long entryId, WaitlistStatus to, String notActive) {
+        WaitlistEntry entry = ReplicaRoutingDataSource.onPrimary(() -> waitlistRepository.findById(entryId))
+                .orElseThrow(() -> new RuntimeException("Waitlist entry not found"));
+        Long doctorId = entry.getDoctor().getId();
+        ReentrantLock lock = bookingLocks.forDoctor(doctorId);
+        lock.lock();
+        try {
+            if (entry.getOfferedTime() == null
+                    || waitlistRepository.transition(entryId, WaitlistStatus.OFFERED, to) == 0) {
+                throw new RuntimeException(notActive);
+            }
+            passOn(doctorId, entry.getRequestedDate(), entry.getOfferedTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the doctor's lock and the slot is still marked booked, by the previous
+    // offer or by the appointment just cancelled
+    private void passOn(Long doctorId, LocalDate date, LocalTime time) {
+        boolean future = date.isAfter(LocalDate.now()) || (date.equals(LocalDate.now()) && time.isAfter(LocalTime.now()));
+        boolean offered = false;
+        try {
+            offered = future && offerHeldSlot(doctorId, date, time);
+        } finally {
+            if (!offered) {
+                availabilityService.release(doctorId, date, time);
+            }
+        }
+    }
+
+    // Offers a held slot to the first waiting patient whose window fits; caller holds the doctor's lock
+    private boolean offerHeldSlot(Long doctorId, LocalDate date, LocalTime time) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(offerTtlMinutes);
+        Long entryId = transactionTemplate.execute(status -> {
+            List<WaitlistEntry> next = waitlistRepository.findNextWaitingForUpdate(doctorId, date, time, PageRequest.of(0, 1));
+            if (next.isEmpty()) {
+                return null;
+            }
+            Long id = next.get(0).getId();
+            waitlistRepository.markOffered(id, time, expiresAt, WaitlistStatus.OFFERED);
+            WaitlistEntry entry = waitlistRepository.findWithParticipantsById(id).orElseThrow();
+            emailService.sendWaitlistOffer(
+                    entry.getPatient().getUser().getEmail(),
+                    entry.getPatient().getUser().getName(),
+                    entry.getDoctor().getUser().getName(),
+                    String.valueOf(date),
+                    String.valueOf(time),
+                    String.valueOf(expiresAt.withNano(0))
+            );
+            return id;
+        });
+        if (entryId == null) {
+            return false;
+        }
+        log.info("Offered {} {} with doctor {} to waitlist entry {}", date, time, doctorId, entryId);
+        return true;
+    }
+}
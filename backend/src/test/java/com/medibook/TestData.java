@@ -0,0 +1,53 @@
+package com.medibook;
+
+import com.medibook.entity.Doctor;
+import com.medibook.entity.Patient;
+import com.medibook.entity.Role;
+import com.medibook.entity.User;
+import com.medibook.repository.DoctorRepository;
+import com.medibook.repository.PatientRepository;
+import com.medibook.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Saved doctors, patients and users for tests; pull in with @Import(TestData.class)
+@TestComponent
+public class TestData {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    public Doctor newDoctor() {
+        Doctor doctor = new Doctor();
+        doctor.setUser(newUser(Role.DOCTOR));
+        doctor.setSpecialization("Cardiology");
+        doctor.setConsultationFee(new BigDecimal("500"));
+        doctor.setVerified(true);
+        return doctorRepository.save(doctor);
+    }
+
+    public Patient newPatient() {
+        Patient patient = new Patient();
+        patient.setUser(newUser(Role.PATIENT));
+        return patientRepository.save(patient);
+    }
+
+    public User newUser(Role role) {
+        User user = new User();
+        user.setName(role + " " + UUID.randomUUID());
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPassword("unused");
+        user.setPhone("1234567890");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,114 @@
+package com.medibook.controller;
+
+import com.medibook.TestData;
+import com.medibook.entity.Appointment;
+import com.medibook.entity.AppointmentStatus;
+import com.medibook.entity.Doctor;
+import com.medibook.entity.Patient;
+import com.medibook.repository.AppointmentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The listings fetch their associations through entity graphs and projections, so the
+// number of statements must not grow with the number of appointments returned
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestData.class)
+class AppointmentControllerStatementCountTest {
+
+    private static final int SMALL = 3;
+    private static final int LARGE = 10 * SMALL;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestData testData;
+
+    private Statistics statistics;
+    private Doctor doctor;
+    private Patient patient;
+    private int seeded;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertThat(statistics.isStatisticsEnabled()).isTrue();
+        doctor = testData.newDoctor();
+        patient = testData.newPatient();
+        seeded = 0;
+    }
+
+    @Test
+    void allAppointmentsUseAFixedNumberOfStatements() throws Exception {
+        assertFixedStatementCount("/api/appointments/all");
+    }
+
+    @Test
+    void doctorListingUsesAFixedNumberOfStatements() throws Exception {
+        assertFixedStatementCount("/api/appointments/doctor/" + doctor.getId());
+    }
+
+    @Test
+    void doctorListingByUserUsesAFixedNumberOfStatements() throws Exception {
+        assertFixedStatementCount("/api/appointments/doctor/user/" + doctor.getUser().getId());
+    }
+
+    @Test
+    void patientListingUsesAFixedNumberOfStatements() throws Exception {
+        assertFixedStatementCount("/api/appointments/patient/" + patient.getUser().getId());
+    }
+
+    private void assertFixedStatementCount(String path) throws Exception {
+        seedUpTo(SMALL);
+        long small = statementsFor(path);
+        seedUpTo(LARGE);
+        long large = statementsFor(path);
+        assertThat(small).isPositive();
+        assertThat(large).as("statements for %s with %d vs %d appointments", path, LARGE, SMALL).isEqualTo(small);
+    }
+
+    // The first request also loads the ETag versions into their cache; only the second is counted
+    private long statementsFor(String path) throws Exception {
+        mockMvc.perform(get(path)).andExpect(status().isOk());
+        statistics.clear();
+        mockMvc.perform(get(path)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seedUpTo(int count) {
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        for (; seeded < count; seeded++) {
+            Appointment apt = new Appointment();
+            apt.setPatient(patient);
+            apt.setDoctor(doctor);
+            apt.setAppointmentDate(firstDay.plusDays(seeded / 16));
+            apt.setAppointmentTime(LocalTime.of(9, 0).plusMinutes(30L * (seeded % 16)));
+            apt.setReason("Checkup");
+            apt.setFee(doctor.getConsultationFee());
+            apt.setStatus(AppointmentStatus.PENDING);
+            appointmentRepository.save(apt);
+        }
+    }
+}
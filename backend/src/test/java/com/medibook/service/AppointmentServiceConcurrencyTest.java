@@ -0,0 +1,116 @@
+package com.medibook.service;
+
+import com.medibook.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestData.class)
+class AppointmentServiceConcurrencyTest {
+
+    private static final int ATTEMPTS = 200;
+    private static final String SLOT_TAKEN = "Selected slot is already booked";
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentBookingsLeaveOneWinnerPerSlot() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        List<Long> doctorIds = List.of(testData.newDoctor().getId(), testData.newDoctor().getId());
+        List<LocalTime> times = List.of(LocalTime.of(10, 0), LocalTime.of(10, 30));
+        List<Long> patientUserIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            patientUserIds.add(testData.newPatient().getUser().getId());
+        }
+
+        Map<String, AtomicInteger> winners = new ConcurrentHashMap<>();
+        AtomicInteger slotTaken = new AtomicInteger();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            Long doctorId = doctorIds.get(i % doctorIds.size());
+            LocalTime time = times.get((i / doctorIds.size()) % times.size());
+            Long userId = patientUserIds.get(i % patientUserIds.size());
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    appointmentService.bookAppointment(userId, doctorId, date, time, "Checkup", "");
+                    winners.computeIfAbsent(doctorId + "@" + time, k -> new AtomicInteger()).incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (SLOT_TAKEN.equals(e.getMessage())) {
+                        slotTaken.incrementAndGet();
+                    } else {
+                        unexpected.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int slots = doctorIds.size() * times.size();
+        assertThat(unexpected).isEmpty();
+        assertThat(winners).hasSize(slots);
+        assertThat(winners.values()).allMatch(count -> count.get() == 1);
+        assertThat(slotTaken.get()).isEqualTo(ATTEMPTS - slots);
+        for (Long doctorId : doctorIds) {
+            for (LocalTime time : times) {
+                assertThat(countAppointments(doctorId, date, time)).isEqualTo(1);
+            }
+        }
+    }
+
+    // Another node booked the slot, so this node's calendar still shows it free; the
+    // unique slot constraint has to turn the second insert away
+    @Test
+    void slotBookedElsewhereIsRejectedByTheDatabase() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        LocalTime time = LocalTime.of(11, 0);
+        Long doctorId = testData.newDoctor().getId();
+
+        appointmentService.bookAppointment(testData.newPatient().getUser().getId(), doctorId, date, time, "Checkup", "");
+        availabilityService.release(doctorId, date, time);
+
+        Long otherUserId = testData.newPatient().getUser().getId();
+        assertThatThrownBy(() -> appointmentService.bookAppointment(otherUserId, doctorId, date, time, "Checkup", ""))
+                .hasMessage(SLOT_TAKEN);
+        assertThat(countAppointments(doctorId, date, time)).isEqualTo(1);
+    }
+
+    private int countAppointments(Long doctorId, LocalDate date, LocalTime time) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND appointment_time = ?",
+                Integer.class, doctorId, date, time);
+    }
+}
@@ -0,0 +1,128 @@
+package com.medibook.service;
+
+import com.medibook.TestData;
+import com.medibook.entity.Appointment;
+import com.medibook.entity.AppointmentStatus;
+import com.medibook.entity.Doctor;
+import com.medibook.entity.Patient;
+import com.medibook.entity.Payment;
+import com.medibook.entity.PaymentStatus;
+import com.medibook.repository.AppointmentRepository;
+import com.medibook.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The fake gateway delivers every callback twice here, while several reconcilers poll at
+// once the way several nodes would; each payment must still be captured exactly once
+@SpringBootTest(properties = {"payments.fake.duplicate-rate=1", "payments.fake.webhook-delay-ms=20"})
+@Import(TestData.class)
+class PaymentReconcilerTest {
+
+    private static final int PAYMENTS = 20;
+    private static final int WORKERS = 8;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentReconciler paymentReconciler;
+
+    @Autowired
+    private FakePaymentGateway fakeGateway;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void redeliveredCallbacksAndRacingReconcilersCaptureEachPaymentOnce() throws Exception {
+        Doctor doctor = testData.newDoctor();
+        Patient patient = testData.newPatient();
+        Map<String, String> gatewayPaymentIds = new LinkedHashMap<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            Payment payment = paymentService.createOrder(newAppointment(doctor, patient, i).getId());
+            Map<String, String> checkout = fakeGateway.checkout(payment.getOrderId());
+            // The browser's verify call authorizes the payment before its callbacks arrive,
+            // so every reconciler finds it capturable on its first pass
+            paymentService.verify(payment.getOrderId(), checkout.get("paymentId"), checkout.get("signature"));
+            gatewayPaymentIds.put(payment.getOrderId(), checkout.get("paymentId"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(WORKERS);
+        try {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (!allCaptured(gatewayPaymentIds.keySet()) && System.currentTimeMillis() < deadline) {
+                reconcileConcurrently(pool);
+                Thread.sleep(50);
+            }
+            // Let the duplicated payment.captured callbacks arrive and be applied as well
+            Thread.sleep(200);
+            reconcileConcurrently(pool);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Map.Entry<String, String> entry : gatewayPaymentIds.entrySet()) {
+            Payment payment = paymentRepository.findByOrderId(entry.getKey()).orElseThrow();
+            assertThat(payment.getStatus()).as("status of %s", entry.getKey()).isEqualTo(PaymentStatus.CAPTURED);
+            assertThat(fakeGateway.captureCount(entry.getValue())).as("captures of %s", entry.getValue()).isEqualTo(1);
+        }
+    }
+
+    private void reconcileConcurrently(ExecutorService pool) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            runs.add(pool.submit(() -> {
+                start.await();
+                paymentReconciler.reconcile();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> run : runs) {
+            run.get();
+        }
+    }
+
+    private boolean allCaptured(Iterable<String> orderIds) {
+        for (String orderId : orderIds) {
+            if (paymentRepository.findByOrderId(orderId).orElseThrow().getStatus() != PaymentStatus.CAPTURED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Appointment newAppointment(Doctor doctor, Patient patient, int index) {
+        Appointment apt = new Appointment();
+        apt.setPatient(patient);
+        apt.setDoctor(doctor);
+        apt.setAppointmentDate(LocalDate.now().plusDays(1));
+        apt.setAppointmentTime(LocalTime.of(9, 0).plusMinutes(30L * index));
+        apt.setReason("Checkup");
+        apt.setFee(doctor.getConsultationFee());
+        apt.setStatus(AppointmentStatus.CONFIRMED);
+        return appointmentRepository.save(apt);
+    }
+}
@@ -14,6 +14,7 @@ import {
 } from '@mui/icons-material';
 import { toast } from 'react-toastify';
 import { DarkModeContext } from '../App';
+import { authAPI } from '../services/api';
 
 const AdminDashboard = () => {
     const navigate = useNavigate();
@@ -71,10 +72,16 @@ const AdminDashboard = () => {
 
     const confirmVerifyDoctor = async () => {
         try {
-            await fetch(`${process.env.REACT_APP_API_URL}/admin/doctors/${selectedDoctor.id}/verify`, {
+            const res = await fetch(`${process.env.REACT_APP_API_URL}/admin/doctors/${selectedDoctor.id}/verify`, {
                 method: 'PUT',
-                headers: { 'Content-Type': 'application/json' }
+                headers: {
+                    'Content-Type': 'application/json',
+                    Authorization: `Bearer ${localStorage.getItem('token')}`
+                }
             });
+            if (!res.ok) {
+                throw new Error(`Verify failed with ${res.status}`);
+            }
             toast.success('Doctor verified successfully!');
             setVerifyDialog(false);
             fetchData();
@@ -84,7 +91,7 @@ const AdminDashboard = () => {
     };
 
     const handleLogout = () => {
-        localStorage.clear();
+        authAPI.logout();
         navigate('/login');
         toast.info('Logged out successfully');
     };
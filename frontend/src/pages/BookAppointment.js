@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import {
     Container, Grid, Paper, Typography, Box, Button, Card,
@@ -6,7 +6,7 @@ import {
     Select, MenuItem, CircularProgress, Avatar, Chip, Alert
 } from '@mui/material';
 import { LocalHospital, ArrowBack, CalendarMonth } from '@mui/icons-material';
-import { doctorAPI, appointmentAPI } from '../services/api';
+import { doctorAPI, appointmentAPI, newIdempotencyKey } from '../services/api';
 import { toast } from 'react-toastify';
 
 const BookAppointment = () => {
@@ -16,6 +16,8 @@ const BookAppointment = () => {
     const [selectedDoctor, setSelectedDoctor] = useState(null);
     const [bookingStep, setBookingStep] = useState(1);
     const [bookingLoading, setBookingLoading] = useState(false);
+    // Reused when the same booking is submitted again, so a retry cannot book twice
+    const bookingKey = useRef(null);
 
     const [filters, setFilters] = useState({
         specialization: '',
@@ -64,10 +66,12 @@ const BookAppointment = () => {
 
     const handleSelectDoctor = (doctor) => {
         setSelectedDoctor(doctor);
+        bookingKey.current = null;
         setBookingStep(2);
     };
 
     const handleBookingChange = (e) => {
+        bookingKey.current = null;
         setBookingData({
             ...bookingData,
             [e.target.name]: e.target.value
@@ -84,6 +88,9 @@ const BookAppointment = () => {
 
         try {
             const userId = localStorage.getItem('userId');
+            if (!bookingKey.current) {
+                bookingKey.current = newIdempotencyKey();
+            }
 
             await appointmentAPI.book({
                 patientId: userId,
@@ -92,7 +99,8 @@ const BookAppointment = () => {
                 appointmentTime: bookingData.appointmentTime,
                 reason: bookingData.reason,
                 notes: bookingData.notes
-            });
+            }, bookingKey.current);
+            bookingKey.current = null;
 
             toast.success('Appointment booked successfully!');
             navigate('/patient/appointments');
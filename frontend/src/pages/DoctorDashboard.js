@@ -13,12 +13,15 @@ import {
 } from '@mui/icons-material';
 import { toast } from 'react-toastify';
 import { DarkModeContext } from '../App';
+import { appointmentAPI, authAPI, nextCursor, subscribeToAppointments, applyAppointmentEvent } from '../services/api';
 
 const DoctorDashboard = () => {
     const navigate = useNavigate();
     const { darkMode, toggleDarkMode } = useContext(DarkModeContext);
     const [appointments, setAppointments] = useState([]);
     const [loading, setLoading] = useState(true);
+    const [cursor, setCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [tabValue, setTabValue] = useState(0);
     const [prescriptionDialog, setPrescriptionDialog] = useState(false);
     const [selectedAppointment, setSelectedAppointment] = useState(null);
@@ -35,20 +38,30 @@ const DoctorDashboard = () => {
 
     useEffect(() => {
         fetchAppointments();
+        return subscribeToAppointments(`doctor/user/${userId}`, {
+            onChange: (event) => {
+                fetchCounts();
+                setAppointments(prev => {
+                    const next = applyAppointmentEvent(prev, event);
+                    if (!next) {
+                        fetchAppointments();
+                        return prev;
+                    }
+                    return next;
+                });
+            },
+            onReset: fetchAppointments
+        });
     }, []);
 
     const fetchAppointments = async () => {
+        fetchCounts();
         try {
             const response = await fetch(`${process.env.REACT_APP_API_URL}/appointments/doctor/user/${userId}`);
             if (response.ok) {
                 const data = await response.json();
                 setAppointments(data);
-                setStats({
-                    total: data.length,
-                    pending: data.filter(a => a.status === 'PENDING').length,
-                    confirmed: data.filter(a => a.status === 'CONFIRMED').length,
-                    completed: data.filter(a => a.status === 'COMPLETED').length
-                });
+                setCursor(nextCursor(response));
             }
         } catch (error) {
             console.error('Error fetching appointments:', error);
@@ -57,6 +70,33 @@ const DoctorDashboard = () => {
         }
     };
 
+    // The server returns one page at a time and a cursor for the next one
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const response = await fetch(`${process.env.REACT_APP_API_URL}/appointments/doctor/user/${userId}?cursor=${encodeURIComponent(cursor)}`);
+            if (response.ok) {
+                const data = await response.json();
+                setAppointments(prev => [...prev, ...data.filter(a => !prev.some(p => p.id === a.id))]);
+                setCursor(nextCursor(response));
+            }
+        } catch (error) {
+            toast.error('Failed to load more appointments');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
+    // Totals cover every appointment, not just the pages loaded so far
+    const fetchCounts = async () => {
+        try {
+            const response = await appointmentAPI.getDoctorCounts(userId);
+            setStats(response.data);
+        } catch (error) {
+            console.error('Error fetching appointment counts:', error);
+        }
+    };
+
     const handleConfirm = async (id) => {
         try {
             const response = await fetch(`${process.env.REACT_APP_API_URL}/appointments/${id}/confirm`, {
@@ -116,7 +156,7 @@ const DoctorDashboard = () => {
     };
 
     const handleLogout = () => {
-        localStorage.clear();
+        authAPI.logout();
         navigate('/login');
         toast.info('Logged out successfully');
     };
@@ -305,6 +345,13 @@ const DoctorDashboard = () => {
                             ))}
                         </Grid>
                     )}
+                    {cursor && (
+                        <Box sx={{ textAlign: 'center', mt: 3 }}>
+                            <Button variant="outlined" onClick={loadMore} disabled={loadingMore}>
+                                {loadingMore ? 'Loading...' : 'Load more'}
+                            </Button>
+                        </Box>
+                    )}
                 </Paper>
 
                 {/* Prescription Dialog */}
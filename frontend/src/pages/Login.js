@@ -32,9 +32,10 @@ const Login = () => {
 
         try {
             const response = await authAPI.login(formData);
-            const { token, userId, name, email, role } = response.data;
+            const { token, refreshToken, userId, name, email, role } = response.data;
 
             localStorage.setItem('token', token);
+            localStorage.setItem('refreshToken', refreshToken);
             localStorage.setItem('userId', userId);
             localStorage.setItem('userName', name);
             localStorage.setItem('userEmail', email);
@@ -8,7 +8,7 @@ import {
     CalendarMonth, LocalHospital, ArrowBack, Cancel,
     CheckCircle, Pending, Schedule
 } from '@mui/icons-material';
-import { appointmentAPI } from '../services/api';
+import { appointmentAPI, nextCursor, subscribeToAppointments, applyAppointmentEvent } from '../services/api';
 import { toast } from 'react-toastify';
 import jsPDF from 'jspdf';
 
@@ -16,9 +16,22 @@ const MyAppointments = () => {
     const navigate = useNavigate();
     const [appointments, setAppointments] = useState([]);
     const [loading, setLoading] = useState(true);
+    const [cursor, setCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     useEffect(() => {
         fetchAppointments();
+        return subscribeToAppointments(`patient/${localStorage.getItem('userId')}`, {
+            onChange: (event) => setAppointments(prev => {
+                const next = applyAppointmentEvent(prev, event);
+                if (!next) {
+                    fetchAppointments();
+                    return prev;
+                }
+                return next;
+            }),
+            onReset: fetchAppointments
+        });
     }, []);
 
     const fetchAppointments = async () => {
@@ -26,6 +39,7 @@ const MyAppointments = () => {
             const userId = localStorage.getItem('userId');
             const response = await appointmentAPI.getPatientAppointments(userId);
             setAppointments(response.data);
+            setCursor(nextCursor(response));
         } catch (error) {
             toast.error('Failed to load appointments');
         } finally {
@@ -33,6 +47,20 @@ const MyAppointments = () => {
         }
     };
 
+    // The server returns one page at a time and a cursor for the next one
+    const loadMore = async () => {
+        setLoadingMore(true);
+        try {
+            const response = await appointmentAPI.getPatientAppointments(localStorage.getItem('userId'), cursor);
+            setAppointments(prev => [...prev, ...response.data.filter(a => !prev.some(p => p.id === a.id))]);
+            setCursor(nextCursor(response));
+        } catch (error) {
+            toast.error('Failed to load more appointments');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     // ✅ PDF Download Function
     const downloadPrescription = (appointment) => {
         const pdf = new jsPDF();
@@ -215,6 +243,13 @@ const MyAppointments = () => {
                     ))}
                 </Grid>
             )}
+            {cursor && (
+                <Box sx={{ textAlign: 'center', mt: 3 }}>
+                    <Button variant="outlined" onClick={loadMore} disabled={loadingMore}>
+                        {loadingMore ? 'Loading...' : 'Load more'}
+                    </Button>
+                </Box>
+            )}
         </Container>
     );
 };
@@ -9,7 +9,7 @@ import {
     CalendarMonth, Logout, Person, EventNote, Home, LocalHospital,
     DarkMode, LightMode
 } from '@mui/icons-material';
-import { appointmentAPI } from '../services/api';
+import { appointmentAPI, authAPI, subscribeToAppointments, applyAppointmentEvent } from '../services/api';
 import { toast } from 'react-toastify';
 import { DarkModeContext } from '../App';
 
@@ -54,21 +54,27 @@ const PatientDashboard = () => {
 
     useEffect(() => {
         fetchAppointments();
+        return subscribeToAppointments(`patient/${userId}`, {
+            onChange: (event) => {
+                fetchCounts();
+                setAppointments(prev => {
+                    const next = applyAppointmentEvent(prev, event);
+                    if (!next) {
+                        fetchAppointments();
+                        return prev;
+                    }
+                    return next;
+                });
+            },
+            onReset: fetchAppointments
+        });
     }, []);
 
     const fetchAppointments = async () => {
+        fetchCounts();
         try {
             const response = await appointmentAPI.getPatientAppointments(userId);
-            const data = response.data;
-            setAppointments(data);
-
-            setStats({
-                total: data.length,
-                pending: data.filter(a => a.status === 'PENDING').length,
-                confirmed: data.filter(a => a.status === 'CONFIRMED').length,
-                completed: data.filter(a => a.status === 'COMPLETED').length,
-                cancelled: data.filter(a => a.status === 'CANCELLED').length
-            });
+            setAppointments(response.data);
         } catch (error) {
             console.error('Error fetching appointments:', error);
         } finally {
@@ -76,8 +82,18 @@ const PatientDashboard = () => {
         }
     };
 
+    // Only the newest page of appointments is loaded here, so totals come from the server
+    const fetchCounts = async () => {
+        try {
+            const response = await appointmentAPI.getPatientCounts(userId);
+            setStats(response.data);
+        } catch (error) {
+            console.error('Error fetching appointment counts:', error);
+        }
+    };
+
     const handleLogout = () => {
-        localStorage.clear();
+        authAPI.logout();
         navigate('/login');
         toast.info('Logged out successfully');
     };
@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useState, useRef } from 'react';
 import { useNavigate, useLocation } from 'react-router-dom';
 import {
     Container, Paper, Typography, Box, Button, Card,
@@ -6,12 +6,15 @@ import {
 } from '@mui/material';
 import { Payment, ArrowBack, CheckCircle } from '@mui/icons-material';
 import { toast } from 'react-toastify';
+import { newIdempotencyKey } from '../services/api';
 
 const PaymentPage = () => {
     const navigate = useNavigate();
     const location = useLocation();
     const [loading, setLoading] = useState(false);
     const [paid, setPaid] = useState(false);
+    // One order per visit to this page, however often Pay is pressed
+    const orderKey = useRef(newIdempotencyKey());
 
     const appointmentData = location.state || {
         doctorName: 'Unknown Doctor',
@@ -28,34 +31,41 @@ const PaymentPage = () => {
             // Create order
             const orderResponse = await fetch('http://localhost:8080/api/payments/create-order', {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
-                body: JSON.stringify({
-                    amount: appointmentData.fee * 100, // Razorpay uses paise
-                    appointmentId: appointmentData.appointmentId
-                })
+                headers: { 'Content-Type': 'application/json', 'Idempotency-Key': orderKey.current },
+                body: JSON.stringify({ appointmentId: appointmentData.appointmentId })
             });
 
             const orderData = await orderResponse.json();
+            if (!orderResponse.ok) {
+                throw new Error(orderData.error);
+            }
+
+            // Stands in for the gateway's checkout widget, which hands back a signed payment id
+            const checkoutResponse = await fetch('http://localhost:8080/api/payments/fake-checkout', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ orderId: orderData.orderId })
+            });
+            const checkout = await checkoutResponse.json();
 
-            // Simulate payment (In production, use Razorpay checkout)
-            setTimeout(async () => {
-                // Verify payment
-                const verifyResponse = await fetch('http://localhost:8080/api/payments/verify', {
-                    method: 'POST',
-                    headers: { 'Content-Type': 'application/json' },
-                    body: JSON.stringify({
-                        paymentId: 'pay_' + Date.now(),
-                        orderId: orderData.orderId
-                    })
-                });
-
-                if (verifyResponse.ok) {
-                    setPaid(true);
-                    toast.success('Payment successful!');
-                }
-
-                setLoading(false);
-            }, 2000);
+            const verifyResponse = await fetch('http://localhost:8080/api/payments/verify', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({
+                    paymentId: checkout.paymentId,
+                    orderId: orderData.orderId,
+                    signature: checkout.signature
+                })
+            });
+            const verifyData = await verifyResponse.json();
+
+            if (verifyResponse.ok && verifyData.success) {
+                setPaid(true);
+                toast.success('Payment successful!');
+            } else {
+                toast.error(verifyData.error || verifyData.message || 'Payment failed');
+            }
+            setLoading(false);
 
         } catch (error) {
             toast.error('Payment failed');
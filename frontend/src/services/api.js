@@ -21,9 +21,50 @@ api.interceptors.request.use(
     (error) => Promise.reject(error)
 );
 
+// Access tokens are short-lived: on a 401 swap the refresh token for a new pair once
+// and retry. Concurrent failures share one refresh, since each refresh token works only once.
+let refreshing = null;
+
+const refreshTokens = () => {
+    if (!refreshing) {
+        refreshing = axios.post(`${API_URL}/auth/refresh`, { refreshToken: localStorage.getItem('refreshToken') })
+            .then((response) => {
+                localStorage.setItem('token', response.data.token);
+                localStorage.setItem('refreshToken', response.data.refreshToken);
+            })
+            .finally(() => { refreshing = null; });
+    }
+    return refreshing;
+};
+
+api.interceptors.response.use(
+    (response) => response,
+    async (error) => {
+        const config = error.config;
+        if (error.response?.status !== 401 || !config || config._retried
+                || !localStorage.getItem('refreshToken') || config.url.startsWith('/auth/')) {
+            return Promise.reject(error);
+        }
+        config._retried = true;
+        try {
+            await refreshTokens();
+        } catch (refreshError) {
+            localStorage.clear();
+            window.location.href = '/login';
+            return Promise.reject(error);
+        }
+        config.headers.Authorization = `Bearer ${localStorage.getItem('token')}`;
+        return api(config);
+    }
+);
+
 // Auth APIs
 export const authAPI = {
     login: (data) => api.post('/auth/login', data),
+    // Ends this session on the server; local state is cleared whatever the outcome
+    logout: () => api.post('/auth/logout', { refreshToken: localStorage.getItem('refreshToken') })
+        .catch(() => {})
+        .finally(() => localStorage.clear()),
     registerPatient: (data) => api.post('/auth/register/patient', data),
     registerDoctor: (data) => api.post('/auth/register/doctor', data),
 };
@@ -36,13 +77,44 @@ export const doctorAPI = {
     getBySpecialization: (spec) => api.get(`/doctors/specialization/${spec}`),
 };
 
+// Key for a write the server should run at most once; resend the same key when retrying it
+export const newIdempotencyKey = () =>
+    window.crypto?.randomUUID ? window.crypto.randomUUID() : `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+
 // Appointment APIs
 export const appointmentAPI = {
-    book: (data) => api.post('/appointments/book', data),
-    getPatientAppointments: (patientId) => api.get(`/appointments/patient/${patientId}`),
-    getDoctorAppointments: (doctorId) => api.get(`/appointments/doctor/${doctorId}`),
+    book: (data, idempotencyKey) => api.post('/appointments/book', data,
+        idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined),
+    // Listings come a page at a time; pass the previous page's nextCursor() to get the next one
+    getPatientAppointments: (patientId, cursor) => api.get(`/appointments/patient/${patientId}`,
+        cursor ? { params: { cursor } } : undefined),
+    getDoctorAppointments: (doctorId, cursor) => api.get(`/appointments/doctor/${doctorId}`,
+        cursor ? { params: { cursor } } : undefined),
+    getPatientCounts: (userId) => api.get(`/appointments/patient/${userId}/counts`),
+    getDoctorCounts: (userId) => api.get(`/appointments/doctor/user/${userId}/counts`),
     confirm: (id) => api.put(`/appointments/${id}/confirm`),
     cancel: (id) => api.put(`/appointments/${id}/cancel`),
 };
 
+// Cursor for the page after this axios or fetch response, or null on the last page
+export const nextCursor = (response) => response.headers.get('X-Next-Cursor') || null;
+
+// Live appointment changes over server-sent events. onChange gets one delta per change;
+// onReset means events were missed and the list should be reloaded. EventSource reconnects
+// on its own and resumes from the last event it saw. Returns a function that closes the stream.
+export const subscribeToAppointments = (path, { onChange, onReset }) => {
+    const source = new EventSource(`${API_URL}/appointments/stream/${path}`);
+    source.addEventListener('appointment', (e) => onChange(JSON.parse(e.data)));
+    source.addEventListener('reset', () => onReset());
+    return () => source.close();
+};
+
+// Applies a status change to a loaded list; null when the appointment is not in it yet
+export const applyAppointmentEvent = (appointments, event) => {
+    if (!appointments.some(a => a.id === event.appointmentId)) return null;
+    return appointments.map(a => a.id === event.appointmentId
+        ? { ...a, status: event.status, prescription: event.prescription ?? a.prescription }
+        : a);
+};
+
 export default api;
\ No newline at end of file